@@ -17,40 +17,143 @@
 package org.cloudfoundry.reactor;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.web.util.UriComponents;
-import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * An abstract implementation of {@link RootProvider} that caches a payload of endpoints per {@link ConnectionContext}.  Once the payload is older than the
+ * {@link ConnectionContext#getCacheDuration() cache duration} it is revalidated.  If a {@link ConnectionContext#getMaxStaleDuration() max stale duration} is configured, the last good payload
+ * continues to be served while a single refresh runs in the background, even if that refresh fails, until the payload is older than the sum of the two durations.
+ */
 abstract class AbstractPayloadCachingRootProvider extends AbstractRootProvider {
 
-    private final ConcurrentMap<ConnectionContext, Mono<Map<String, String>>> payloads = new ConcurrentHashMap<>(1);
+    private final ConcurrentMap<ConnectionContext, CachedPayload> payloads = new ConcurrentHashMap<>(1);
+
+    /**
+     * Returns the outcomes of refreshes of the payload cached for a {@link ConnectionContext}
+     *
+     * @param connectionContext the connection context
+     * @return the refresh events
+     */
+    public final Flux<PayloadRefreshEvent> getRefreshEvents(ConnectionContext connectionContext) {
+        return getCachedPayload(connectionContext).processor;
+    }
 
     protected abstract Mono<Map<String, String>> doGetPayload(ConnectionContext connectionContext);
 
-    @Override
-    protected final Mono<UriComponents> doGetRoot(String key, ConnectionContext connectionContext) {
-        return this.payloads.computeIfAbsent(connectionContext, this::getPayload)
-            .map(payload -> {
-                if (!payload.containsKey(key)) {
-                    throw new IllegalArgumentException(String.format("Payload does not contain key '%s;", key));
-                }
+    protected final Mono<Map<String, String>> getPayload(ConnectionContext connectionContext) {
+        CachedPayload cachedPayload = getCachedPayload(connectionContext);
+
+        return Mono.defer(() -> {
+            Snapshot snapshot = cachedPayload.snapshot;
+            if (snapshot == null) {
+                return refresh(connectionContext, cachedPayload);
+            }
 
-                return normalize(UriComponentsBuilder.fromUriString(payload.get(key)));
-            });
+            Optional<Duration> cacheDuration = connectionContext.getCacheDuration();
+            if (!cacheDuration.isPresent() || !isOlderThan(snapshot, cacheDuration.get())) {
+                return Mono.just(snapshot.payload);
+            }
+
+            if (!isStaleServable(connectionContext, snapshot)) {
+                return refresh(connectionContext, cachedPayload);
+            }
+
+            refresh(connectionContext, cachedPayload);
+            return Mono.just(snapshot.payload);
+        });
     }
 
     abstract ObjectMapper getObjectMapper();
 
-    private Mono<Map<String, String>> getPayload(ConnectionContext connectionContext) {
-        Mono<Map<String, String>> cached = doGetPayload(connectionContext);
+    @Override
+    final boolean isPayloadCaching() {
+        return true;
+    }
+
+    private static boolean isOlderThan(Snapshot snapshot, Duration duration) {
+        return System.nanoTime() - snapshot.timestamp > duration.toNanos();
+    }
+
+    private static boolean isStaleServable(ConnectionContext connectionContext, Snapshot snapshot) {
+        Optional<Duration> cacheDuration = connectionContext.getCacheDuration();
+        Optional<Duration> maxStaleDuration = connectionContext.getMaxStaleDuration();
+
+        return snapshot != null && cacheDuration.isPresent() && maxStaleDuration.isPresent() && !isOlderThan(snapshot, cacheDuration.get().plus(maxStaleDuration.get()));
+    }
+
+    private CachedPayload getCachedPayload(ConnectionContext connectionContext) {
+        return this.payloads.computeIfAbsent(connectionContext, c -> new CachedPayload());
+    }
+
+    private Mono<Map<String, String>> refresh(ConnectionContext connectionContext, CachedPayload cachedPayload) {
+        Mono<Map<String, String>> candidate = Mono.defer(() -> {
+            long start = System.nanoTime();
+
+            return doGetPayload(connectionContext)
+                .doOnNext(payload -> {
+                    cachedPayload.snapshot = new Snapshot(payload);
+                    cachedPayload.sink.next(PayloadRefreshEvent.builder()
+                        .latency(Duration.ofNanos(System.nanoTime() - start))
+                        .stale(false)
+                        .build());
+                })
+                .doOnError(t -> cachedPayload.sink.next(PayloadRefreshEvent.builder()
+                    .error(t)
+                    .latency(Duration.ofNanos(System.nanoTime() - start))
+                    .stale(isStaleServable(connectionContext, cachedPayload.snapshot))
+                    .build()));
+        })
+            .cache();
+
+        for (; ; ) {
+            Mono<Map<String, String>> inFlight = cachedPayload.refresh.get();
+            if (inFlight != null) {
+                return inFlight;
+            }
+
+            if (cachedPayload.refresh.compareAndSet(null, candidate)) {
+                candidate
+                    .onErrorResume(t -> Mono.empty())
+                    .doFinally(signalType -> cachedPayload.refresh.compareAndSet(candidate, null))
+                    .subscribe();
+
+                return candidate;
+            }
+        }
+    }
+
+    private static final class CachedPayload {
+
+        private final DirectProcessor<PayloadRefreshEvent> processor = DirectProcessor.create();
+
+        private final AtomicReference<Mono<Map<String, String>>> refresh = new AtomicReference<>();
+
+        private final FluxSink<PayloadRefreshEvent> sink = this.processor.sink();
+
+        private volatile Snapshot snapshot;
+
+    }
+
+    private static final class Snapshot {
+
+        private final Map<String, String> payload;
+
+        private final long timestamp = System.nanoTime();
+
+        private Snapshot(Map<String, String> payload) {
+            this.payload = payload;
+        }
 
-        return connectionContext.getCacheDuration()
-            .map(cached::cache)
-            .orElseGet(cached::cache);
     }
 
 }
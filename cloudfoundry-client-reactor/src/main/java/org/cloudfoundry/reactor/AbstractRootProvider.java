@@ -67,6 +67,10 @@ abstract class AbstractRootProvider implements RootProvider {
             .delayUntil(uri -> trust(uri.getHost(), uri.getPort(), connectionContext))
             .map(UriComponents::toUriString);
 
+        if (isPayloadCaching()) {
+            return cached;
+        }
+
         return connectionContext.getCacheDuration()
             .map(cached::cache)
             .orElseGet(cached::cache);
@@ -100,6 +104,13 @@ abstract class AbstractRootProvider implements RootProvider {
      */
     abstract Optional<Integer> getPort();
 
+    /**
+     * Whether the implementation caches its own payload.  If so, keyed roots are resolved against that cache on every subscription rather than being cached here.
+     */
+    boolean isPayloadCaching() {
+        return false;
+    }
+
     /**
      * Whether the connection to the root API should be secure (i.e. using HTTPS).  Defaults to {@code true}.
      */
@@ -38,6 +38,14 @@ public interface ConnectionContext {
      */
     HttpClient getHttpClient();
 
+    /**
+     * The duration beyond the {@link #getCacheDuration() cache duration} that stale responses like the payload of the API root may continue to be served while they are revalidated in the
+     * background.  If not set, expired responses are always revalidated before being served.
+     */
+    default Optional<Duration> getMaxStaleDuration() {
+        return Optional.empty();
+    }
+
     /**
      * The {@link ObjectMapper} to use
      */
@@ -48,6 +56,21 @@ public interface ConnectionContext {
      */
     RootProvider getRootProvider();
 
+    /**
+     * The number of times that an upload of application bits, droplets, packages, or buildpacks should be retried after a transport failure or a gateway error.  Uploads are replayed in their
+     * entirety as the Cloud Controller does not support resuming a partial upload.  If not set, uploads are not retried.
+     */
+    default Optional<Integer> getUploadRetries() {
+        return Optional.empty();
+    }
+
+    /**
+     * Whether JSON responses should be decoded incrementally as they are received rather than aggregated into a single payload first.  Defaults to {@code false}.
+     */
+    default boolean isStreamingJsonDecoding() {
+        return false;
+    }
+
     /**
      * Attempt to explicitly trust the TLS certificate of an endpoint.  Implementations can choose whether any actual trusting will happen.
      *
@@ -40,4 +40,15 @@ public interface TokenProvider {
     default void invalidate(ConnectionContext connectionContext) {
     }
 
+    /**
+     * Called when a {@code 401 UNAUTHORIZED} is received as part of a request that was made with a specific token.  Implementations can use the token to ignore invalidations for tokens that have
+     * already been replaced.  The default implementation delegates to {@link #invalidate(ConnectionContext)}.
+     *
+     * @param connectionContext A {@link ConnectionContext} to be used to identity which connection the tokens should be invalidated for
+     * @param token             the token that was rejected
+     */
+    default void invalidate(ConnectionContext connectionContext, String token) {
+        invalidate(connectionContext);
+    }
+
 }
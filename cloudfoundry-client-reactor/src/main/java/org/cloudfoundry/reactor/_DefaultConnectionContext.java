@@ -23,7 +23,9 @@ import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import io.netty.buffer.PooledByteBufAllocator;
 import org.cloudfoundry.Nullable;
 import org.cloudfoundry.reactor.util.ByteBufAllocatorMetricProviderWrapper;
+import org.cloudfoundry.reactor.util.ConnectionPoolMetricsMXBean;
 import org.cloudfoundry.reactor.util.DefaultSslCertificateTruster;
+import org.cloudfoundry.reactor.util.InstrumentedPoolResources;
 import org.cloudfoundry.reactor.util.SslCertificateTruster;
 import org.cloudfoundry.reactor.util.StaticTrustManagerFactory;
 import org.immutables.value.Value;
@@ -40,8 +42,11 @@ import javax.management.JMException;
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 import java.lang.management.ManagementFactory;
+import java.net.SocketAddress;
 import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
@@ -81,6 +86,14 @@ abstract class _DefaultConnectionContext implements ConnectionContext {
         } catch (JMException e) {
             this.logger.error("Unable to register ByteBufAllocator MBean", e);
         }
+
+        try {
+            for (ObjectName name : ManagementFactory.getPlatformMBeanServer().queryNames(getConnectionPoolObjectName("*"), null)) {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            this.logger.error("Unable to unregister ConnectionPool MBean", e);
+        }
     }
 
     @Override
@@ -118,6 +131,9 @@ abstract class _DefaultConnectionContext implements ConnectionContext {
         });
     }
 
+    @Override
+    public abstract Optional<Duration> getMaxStaleDuration();
+
     @Override
     @Value.Default
     public ObjectMapper getObjectMapper() {
@@ -143,6 +159,15 @@ abstract class _DefaultConnectionContext implements ConnectionContext {
             .build();
     }
 
+    @Override
+    public abstract Optional<Integer> getUploadRetries();
+
+    @Override
+    @Value.Default
+    public boolean isStreamingJsonDecoding() {
+        return false;
+    }
+
     /**
      * The number of worker threads to use when processing requests and responses
      */
@@ -171,9 +196,20 @@ abstract class _DefaultConnectionContext implements ConnectionContext {
     @Value.Derived
     Optional<PoolResources> getConnectionPool() {
         return Optional.ofNullable(getConnectionPoolSize())
-            .map(connectionPoolSize -> PoolResources.fixed("cloudfoundry-client", connectionPoolSize));
+            .map(connectionPoolSize -> {
+                Map<String, PoolResources> hostPools = new HashMap<>();
+                getConnectionPoolSizes().forEach((host, size) -> hostPools.put(host, PoolResources.fixed(String.format("cloudfoundry-client-%s", host), size)));
+
+                return new InstrumentedPoolResources(PoolResources.fixed("cloudfoundry-client", connectionPoolSize), hostPools, this::monitorConnectionPool);
+            });
     }
 
+    /**
+     * The number of connections to use for specific hosts, keyed by host name.  Connections are always pooled per remote host, and entries here override {@link #getConnectionPoolSize()} so that,
+     * for example, the UAA can be given a pool sized independently of the Cloud Controller or Doppler.  Ignored if connection pooling is disabled.
+     */
+    abstract Map<String, Integer> getConnectionPoolSizes();
+
     /**
      * The {@code SO_KEEPALIVE} value
      */
@@ -253,4 +289,22 @@ abstract class _DefaultConnectionContext implements ConnectionContext {
         return ObjectName.getInstance(String.format("org.cloudfoundry.reactor:type=ByteBufAllocator,endpoint=%s/%d", getApiHost(), getPort().orElse(DEFAULT_PORT)));
     }
 
+    private ObjectName getConnectionPoolObjectName(String remote) throws MalformedObjectNameException {
+        return ObjectName.getInstance(String.format("org.cloudfoundry.reactor:type=ConnectionPool,endpoint=%s/%d,remote=%s", getApiHost(), getPort().orElse(DEFAULT_PORT), remote));
+    }
+
+    private void monitorConnectionPool(SocketAddress address, ConnectionPoolMetricsMXBean metrics) {
+        try {
+            ObjectName name = getConnectionPoolObjectName(ObjectName.quote(address.toString()));
+
+            if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            }
+
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+        } catch (JMException e) {
+            this.logger.error("Unable to register ConnectionPool MBean", e);
+        }
+    }
+
 }
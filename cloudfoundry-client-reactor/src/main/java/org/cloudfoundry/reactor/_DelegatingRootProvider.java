@@ -20,6 +20,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.immutables.value.Value;
 import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -68,6 +69,16 @@ abstract class _DelegatingRootProvider extends AbstractRootProvider {
 
     abstract ObjectMapper getObjectMapper();
 
+    /**
+     * Returns the outcomes of refreshes of the root and {@code /v2/info} payloads cached for a {@link ConnectionContext}
+     *
+     * @param connectionContext the connection context
+     * @return the refresh events
+     */
+    public Flux<PayloadRefreshEvent> getRefreshEvents(ConnectionContext connectionContext) {
+        return Flux.merge(getRootPayloadRootProvider().getRefreshEvents(connectionContext), getInfoPayloadRootProvider().getRefreshEvents(connectionContext));
+    }
+
     @Value.Derived
     RootPayloadRootProvider getRootPayloadRootProvider() {
         return RootPayloadRootProvider.builder()
@@ -16,7 +16,6 @@
 
 package org.cloudfoundry.reactor;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.cloudfoundry.reactor.util.JsonCodec;
 import org.cloudfoundry.reactor.util.NetworkLogging;
 import org.cloudfoundry.reactor.util.UserAgent;
@@ -32,14 +31,16 @@ import java.util.Map;
  * A {@link RootProvider} that returns endpoints extracted from the `/v2/info` API for the configured endpoint.
  */
 @Value.Immutable
-abstract class _InfoPayloadRootProvider extends AbstractRootProvider {
+abstract class _InfoPayloadRootProvider extends AbstractPayloadCachingRootProvider {
 
+    @Override
     protected Mono<UriComponents> doGetRoot(ConnectionContext connectionContext) {
         return Mono.just(getRoot());
     }
 
+    @Override
     protected Mono<UriComponents> doGetRoot(String key, ConnectionContext connectionContext) {
-        return getInfo(connectionContext)
+        return getPayload(connectionContext)
             .map(info -> {
                 if (!info.containsKey(key)) {
                     throw new IllegalArgumentException(String.format("Info payload does not contain key '%s'", key));
@@ -49,11 +50,9 @@ abstract class _InfoPayloadRootProvider extends AbstractRootProvider {
             });
     }
 
-    abstract ObjectMapper getObjectMapper();
-
     @SuppressWarnings("unchecked")
-    @Value.Derived
-    private Mono<Map<String, String>> getInfo(ConnectionContext connectionContext) {
+    @Override
+    protected Mono<Map<String, String>> doGetPayload(ConnectionContext connectionContext) {
         return getRoot(connectionContext)
             .map(uri -> UriComponentsBuilder.fromUriString(uri).pathSegment("v2", "info").build().encode().toUriString())
             .flatMap(uri -> connectionContext.getHttpClient()
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor;
+
+import org.immutables.value.Value;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The outcome of an asynchronous refresh of a cached root payload
+ */
+@Value.Immutable
+abstract class _PayloadRefreshEvent {
+
+    /**
+     * The error that caused the refresh to fail, if any
+     */
+    public abstract Optional<Throwable> getError();
+
+    /**
+     * How long the refresh took
+     */
+    public abstract Duration getLatency();
+
+    /**
+     * Whether a stale payload continues to be served as a result of this refresh
+     */
+    public abstract boolean isStale();
+
+}
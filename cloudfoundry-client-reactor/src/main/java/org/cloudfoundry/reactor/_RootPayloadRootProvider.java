@@ -16,7 +16,6 @@
 
 package org.cloudfoundry.reactor;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.cloudfoundry.reactor.util.JsonCodec;
 import org.cloudfoundry.reactor.util.NetworkLogging;
 import org.cloudfoundry.reactor.util.UserAgent;
@@ -33,7 +32,7 @@ import java.util.stream.Collectors;
  * A {@link RootProvider} that returns endpoints extracted from the `/` API for the configured endpoint.
  */
 @Value.Immutable
-abstract class _RootPayloadRootProvider extends AbstractRootProvider {
+abstract class _RootPayloadRootProvider extends AbstractPayloadCachingRootProvider {
 
     @Override
     protected Mono<UriComponents> doGetRoot(ConnectionContext connectionContext) {
@@ -52,11 +51,9 @@ abstract class _RootPayloadRootProvider extends AbstractRootProvider {
             });
     }
 
-    abstract ObjectMapper getObjectMapper();
-
     @SuppressWarnings("unchecked")
-    @Value.Derived
-    private Mono<Map<String, String>> getPayload(ConnectionContext connectionContext) {
+    @Override
+    protected Mono<Map<String, String>> doGetPayload(ConnectionContext connectionContext) {
         return getRoot(connectionContext)
             .flatMap(uri -> connectionContext.getHttpClient()
                 .get(uri, request -> Mono.just(request)
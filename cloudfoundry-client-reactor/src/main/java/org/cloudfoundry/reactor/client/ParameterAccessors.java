@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.client;
+
+import org.cloudfoundry.reactor.util.AnnotationUtils;
+import reactor.core.Exceptions;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A per-type cache of the accessor methods annotated with a given annotation.  The methods of a type are inspected once, in name order, and converted to {@link MethodHandle}s so that subsequent
+ * invocations avoid reflective lookup.
+ *
+ * @param <A> the type of the annotation
+ */
+public final class ParameterAccessors<A extends Annotation> {
+
+    private static final MethodType ACCESSOR_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final ClassValue<List<Accessor<A>>> accessors;
+
+    /**
+     * Creates a new instance
+     *
+     * @param annotationType the type of the annotation that marks accessor methods
+     */
+    public ParameterAccessors(Class<A> annotationType) {
+        this.accessors = new ClassValue<List<Accessor<A>>>() {
+
+            @Override
+            protected List<Accessor<A>> computeValue(Class<?> type) {
+                return ParameterAccessors.computeAccessors(type, annotationType);
+            }
+
+        };
+    }
+
+    /**
+     * Returns the accessors for a type, in method name order
+     *
+     * @param type the type to inspect
+     * @return the accessors for the type
+     */
+    public List<Accessor<A>> get(Class<?> type) {
+        return this.accessors.get(type);
+    }
+
+    private static <A extends Annotation> List<Accessor<A>> computeAccessors(Class<?> type, Class<A> annotationType) {
+        Method[] methods = type.getMethods();
+        Arrays.sort(methods, MethodNameComparator.INSTANCE);
+
+        List<Accessor<A>> accessors = new ArrayList<>();
+        for (Method method : methods) {
+            AnnotationUtils.findAnnotation(method, annotationType)
+                .ifPresent(annotation -> accessors.add(new Accessor<>(annotation, toMethodHandle(method))));
+        }
+
+        return Collections.unmodifiableList(accessors);
+    }
+
+    private static MethodHandle toMethodHandle(Method method) {
+        try {
+            return MethodHandles.publicLookup().unreflect(method).asType(ACCESSOR_TYPE);
+        } catch (IllegalAccessException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    /**
+     * An annotated accessor method
+     *
+     * @param <A> the type of the annotation
+     */
+    public static final class Accessor<A extends Annotation> {
+
+        private final A annotation;
+
+        private final MethodHandle methodHandle;
+
+        private Accessor(A annotation, MethodHandle methodHandle) {
+            this.annotation = annotation;
+            this.methodHandle = methodHandle;
+        }
+
+        /**
+         * Returns the annotation on the accessor method
+         */
+        public A getAnnotation() {
+            return this.annotation;
+        }
+
+        /**
+         * Invokes the accessor method
+         *
+         * @param instance the instance to invoke the method on
+         * @return the value returned by the method, possibly {@code null}
+         */
+        public Object getValue(Object instance) {
+            try {
+                return this.methodHandle.invokeExact(instance);
+            } catch (Throwable t) {
+                throw Exceptions.propagate(t);
+            }
+        }
+
+    }
+
+}
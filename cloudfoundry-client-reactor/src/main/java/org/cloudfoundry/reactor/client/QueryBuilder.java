@@ -17,16 +17,9 @@
 package org.cloudfoundry.reactor.client;
 
 import org.cloudfoundry.QueryParameter;
-import org.cloudfoundry.reactor.util.AnnotationUtils;
 import org.springframework.web.util.UriComponentsBuilder;
-import reactor.core.Exceptions;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.Optional;
-import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -34,6 +27,8 @@ import java.util.stream.Collectors;
  */
 public final class QueryBuilder {
 
+    private static final ParameterAccessors<QueryParameter> ACCESSORS = new ParameterAccessors<>(QueryParameter.class);
+
     private QueryBuilder() {
     }
 
@@ -44,24 +39,15 @@ public final class QueryBuilder {
      * @param instance the instance to inspect and invoke
      */
     public static void augment(UriComponentsBuilder builder, Object instance) {
-        Arrays.stream(instance.getClass().getMethods())
-            .sorted(MethodNameComparator.INSTANCE)
-            .forEach(processMethod(builder, instance));
-    }
+        for (ParameterAccessors.Accessor<QueryParameter> accessor : ACCESSORS.get(instance.getClass())) {
+            Object value = accessor.getValue(instance);
 
-    private static Optional<Object> getValue(Method method, Object instance) {
-        try {
-            return Optional.ofNullable(method.invoke(instance));
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            throw Exceptions.propagate(e);
+            if (value != null) {
+                processValue(builder, accessor.getAnnotation(), value);
+            }
         }
     }
 
-    private static Consumer<QueryParameter> processAnnotation(UriComponentsBuilder builder, Method method, Object instance) {
-        return queryParameter -> getValue(method, instance)
-            .ifPresent(processValue(builder, queryParameter));
-    }
-
     private static void processCollection(UriComponentsBuilder builder, QueryParameter queryParameter, Object value) {
         processValue(builder, queryParameter.value(),
             ((Collection<?>) value).stream()
@@ -70,25 +56,18 @@ public final class QueryBuilder {
                 .collect(Collectors.joining(queryParameter.delimiter())));
     }
 
-    private static Consumer<Method> processMethod(UriComponentsBuilder builder, Object instance) {
-        return method -> AnnotationUtils.findAnnotation(method, QueryParameter.class)
-            .ifPresent(processAnnotation(builder, method, instance));
-    }
-
     private static void processValue(UriComponentsBuilder builder, String name, String value) {
         if (!value.isEmpty()) {
             builder.queryParam(name, value);
         }
     }
 
-    private static Consumer<Object> processValue(UriComponentsBuilder builder, QueryParameter queryParameter) {
-        return value -> {
-            if (value instanceof Collection) {
-                processCollection(builder, queryParameter, value);
-            } else {
-                processValue(builder, queryParameter.value(), value.toString());
-            }
-        };
+    private static void processValue(UriComponentsBuilder builder, QueryParameter queryParameter, Object value) {
+        if (value instanceof Collection) {
+            processCollection(builder, queryParameter, value);
+        } else {
+            processValue(builder, queryParameter.value(), value.toString());
+        }
     }
 
 }
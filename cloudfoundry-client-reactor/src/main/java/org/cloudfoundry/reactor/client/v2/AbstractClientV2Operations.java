@@ -23,12 +23,14 @@ import org.cloudfoundry.reactor.client.QueryBuilder;
 import org.cloudfoundry.reactor.util.AbstractReactorOperations;
 import org.cloudfoundry.reactor.util.ErrorPayloadMapper;
 import org.cloudfoundry.reactor.util.MultipartHttpClientRequest;
+import org.cloudfoundry.util.UploadProgressMonitor;
 import org.reactivestreams.Publisher;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Mono;
 import reactor.ipc.netty.http.client.HttpClientRequest;
 import reactor.ipc.netty.http.client.HttpClientResponse;
 
+import java.util.Optional;
 import java.util.function.Function;
 
 public abstract class AbstractClientV2Operations extends AbstractReactorOperations {
@@ -76,13 +78,14 @@ public abstract class AbstractClientV2Operations extends AbstractReactorOperatio
 
     protected final <T> Mono<T> post(Object requestPayload, Class<T> responseType, Function<UriComponentsBuilder, UriComponentsBuilder> uriTransformer,
                                      Function<Mono<MultipartHttpClientRequest>, Publisher<Void>> requestTransformer) {
-        return doPost(responseType,
-            queryTransformer(requestPayload)
-                .andThen(uriTransformer),
-            outbound -> outbound
-                .map(multipartRequest(this.connectionContext.getObjectMapper()))
-                .transform(requestTransformer),
-            ErrorPayloadMapper.clientV2(this.connectionContext.getObjectMapper()));
+        return Mono.subscriberContext()
+            .flatMap(context -> doPost(responseType,
+                queryTransformer(requestPayload)
+                    .andThen(uriTransformer),
+                outbound -> outbound
+                    .map(multipartRequest(this.connectionContext.getObjectMapper(), context.getOrEmpty(UploadProgressMonitor.class)))
+                    .transform(requestTransformer),
+                ErrorPayloadMapper.clientV2(this.connectionContext.getObjectMapper())));
     }
 
     protected final <T> Mono<T> put(Object requestPayload, Class<T> responseType, Function<UriComponentsBuilder, UriComponentsBuilder> uriTransformer) {
@@ -95,17 +98,18 @@ public abstract class AbstractClientV2Operations extends AbstractReactorOperatio
 
     protected final <T> Mono<T> put(Object requestPayload, Class<T> responseType, Function<UriComponentsBuilder, UriComponentsBuilder> uriTransformer,
                                     Function<Mono<MultipartHttpClientRequest>, Publisher<Void>> requestTransformer) {
-        return doPut(responseType,
-            queryTransformer(requestPayload)
-                .andThen(uriTransformer),
-            outbound -> outbound
-                .map(multipartRequest(this.connectionContext.getObjectMapper()))
-                .transform(requestTransformer),
-            ErrorPayloadMapper.clientV2(this.connectionContext.getObjectMapper()));
+        return Mono.subscriberContext()
+            .flatMap(context -> doPut(responseType,
+                queryTransformer(requestPayload)
+                    .andThen(uriTransformer),
+                outbound -> outbound
+                    .map(multipartRequest(this.connectionContext.getObjectMapper(), context.getOrEmpty(UploadProgressMonitor.class)))
+                    .transform(requestTransformer),
+                ErrorPayloadMapper.clientV2(this.connectionContext.getObjectMapper())));
     }
 
-    private static Function<HttpClientRequest, MultipartHttpClientRequest> multipartRequest(ObjectMapper objectMapper) {
-        return request -> new MultipartHttpClientRequest(objectMapper, request);
+    private static Function<HttpClientRequest, MultipartHttpClientRequest> multipartRequest(ObjectMapper objectMapper, Optional<UploadProgressMonitor> monitor) {
+        return request -> new MultipartHttpClientRequest(objectMapper, request, monitor.orElse(null));
     }
 
     private static Function<UriComponentsBuilder, UriComponentsBuilder> queryTransformer(Object requestPayload) {
@@ -44,6 +44,7 @@ import org.cloudfoundry.client.v2.applications.ListApplicationsRequest;
 import org.cloudfoundry.client.v2.applications.ListApplicationsResponse;
 import org.cloudfoundry.client.v2.applications.RemoveApplicationRouteRequest;
 import org.cloudfoundry.client.v2.applications.RemoveApplicationServiceBindingRequest;
+import org.cloudfoundry.client.v2.applications.Resource;
 import org.cloudfoundry.client.v2.applications.RestageApplicationRequest;
 import org.cloudfoundry.client.v2.applications.RestageApplicationResponse;
 import org.cloudfoundry.client.v2.applications.SummaryApplicationRequest;
@@ -60,14 +61,14 @@ import org.cloudfoundry.reactor.TokenProvider;
 import org.cloudfoundry.reactor.client.v2.AbstractClientV2Operations;
 import org.cloudfoundry.reactor.util.MultipartHttpClientRequest;
 import org.cloudfoundry.util.FileUtils;
-import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.ipc.netty.http.client.HttpClientRequest;
 
-import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
 import static io.netty.handler.codec.http.HttpHeaderValues.APPLICATION_JSON;
@@ -217,19 +218,16 @@ public final class ReactorApplicationsV2 extends AbstractClientV2Operations impl
             outbound -> outbound
                 .flatMap(r -> {
                     if (Files.isDirectory(request.getApplication())) {
-                        return FileUtils.compress(request.getApplication())
-                            .flatMap(application -> upload(application, r, request)
-                                .doOnTerminate(() -> {
-                                    try {
-                                        Files.delete(application);
-                                    } catch (IOException e) {
-                                        throw Exceptions.propagate(e);
-                                    }
-                                }));
+                        Set<String> matchedPaths = request.getResources().stream()
+                            .map(Resource::getPath)
+                            .collect(Collectors.toSet());
+
+                        return upload(FileUtils.compressStream(request.getApplication(), path -> !matchedPaths.contains(path)), r, request);
                     } else {
                         return upload(request.getApplication(), r, request);
                     }
                 }))
+            .transform(uploadRetry())
             .checkpoint();
     }
 
@@ -238,6 +236,7 @@ public final class ReactorApplicationsV2 extends AbstractClientV2Operations impl
         return put(request, UploadApplicationDropletResponse.class, builder -> builder.pathSegment("apps", request.getApplicationId(), "droplet", "upload"),
             outbound -> outbound
                 .flatMap(r -> upload(r, request)))
+            .transform(uploadRetry())
             .checkpoint();
     }
 
@@ -254,6 +253,19 @@ public final class ReactorApplicationsV2 extends AbstractClientV2Operations impl
             .done();
     }
 
+    private Mono<Void> upload(Flux<byte[]> application, MultipartHttpClientRequest r, UploadApplicationRequest request) {
+        return r
+            .addPart(part -> part
+                .setContentDispositionFormData("resources")
+                .setHeader(CONTENT_TYPE, APPLICATION_JSON)
+                .send(request.getResources()))
+            .addPart(part -> part
+                .setContentDispositionFormData("application", "application.zip")
+                .setHeader(CONTENT_TYPE, APPLICATION_ZIP)
+                .sendStream(application))
+            .done();
+    }
+
     private Mono<Void> upload(MultipartHttpClientRequest r, UploadApplicationDropletRequest request) {
         return r
             .addPart(part -> part
@@ -109,6 +109,7 @@ public final class ReactorBuildpacks extends AbstractClientV2Operations implemen
                         return upload(request.getBuildpack(), r, request.getFilename());
                     }
                 }))
+            .transform(uploadRetry())
             .checkpoint();
     }
 
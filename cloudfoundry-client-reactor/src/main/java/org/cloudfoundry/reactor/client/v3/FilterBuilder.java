@@ -17,21 +17,16 @@
 package org.cloudfoundry.reactor.client.v3;
 
 import org.cloudfoundry.client.v3.FilterParameter;
-import org.cloudfoundry.reactor.client.MethodNameComparator;
-import org.cloudfoundry.reactor.util.AnnotationUtils;
+import org.cloudfoundry.reactor.client.ParameterAccessors;
 import org.springframework.web.util.UriComponentsBuilder;
-import reactor.core.Exceptions;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.Optional;
-import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 final class FilterBuilder {
 
+    private static final ParameterAccessors<FilterParameter> ACCESSORS = new ParameterAccessors<>(FilterParameter.class);
+
     private FilterBuilder() {
     }
 
@@ -42,24 +37,15 @@ final class FilterBuilder {
      * @param instance the instance to inspect and invoke
      */
     public static void augment(UriComponentsBuilder builder, Object instance) {
-        Arrays.stream(instance.getClass().getMethods())
-            .sorted(MethodNameComparator.INSTANCE)
-            .forEach(processMethod(builder, instance));
-    }
+        for (ParameterAccessors.Accessor<FilterParameter> accessor : ACCESSORS.get(instance.getClass())) {
+            Object value = accessor.getValue(instance);
 
-    private static Optional<Object> getValue(Method method, Object instance) {
-        try {
-            return Optional.ofNullable(method.invoke(instance));
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            throw Exceptions.propagate(e);
+            if (value != null) {
+                processValue(builder, accessor.getAnnotation(), value);
+            }
         }
     }
 
-    private static Consumer<FilterParameter> processAnnotation(UriComponentsBuilder builder, Method method, Object instance) {
-        return filterParameter -> getValue(method, instance)
-            .ifPresent(processValue(builder, filterParameter));
-    }
-
     private static void processCollection(UriComponentsBuilder builder, String name, Object value) {
         processValue(builder, name,
             ((Collection<?>) value).stream()
@@ -68,25 +54,18 @@ final class FilterBuilder {
                 .collect(Collectors.joining(",")));
     }
 
-    private static Consumer<Method> processMethod(UriComponentsBuilder builder, Object instance) {
-        return method -> AnnotationUtils.findAnnotation(method, FilterParameter.class)
-            .ifPresent(processAnnotation(builder, method, instance));
-    }
-
     private static void processValue(UriComponentsBuilder builder, String name, String value) {
         if (!value.isEmpty()) {
             builder.queryParam(name, value);
         }
     }
 
-    private static Consumer<Object> processValue(UriComponentsBuilder builder, FilterParameter filterParameter) {
-        return value -> {
-            if (value instanceof Collection) {
-                processCollection(builder, filterParameter.value(), value);
-            } else {
-                processValue(builder, filterParameter.value(), value.toString());
-            }
-        };
+    private static void processValue(UriComponentsBuilder builder, FilterParameter filterParameter, Object value) {
+        if (value instanceof Collection) {
+            processCollection(builder, filterParameter.value(), value);
+        } else {
+            processValue(builder, filterParameter.value(), value.toString());
+        }
     }
 
 }
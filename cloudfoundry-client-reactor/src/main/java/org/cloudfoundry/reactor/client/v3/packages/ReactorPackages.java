@@ -125,6 +125,7 @@ public final class ReactorPackages extends AbstractClientV3Operations implements
                         return upload(request.getBits(), r);
                     }
                 }))
+            .transform(uploadRetry())
             .checkpoint();
     }
 
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.doppler;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Metrics for the Doppler connections made by a subscription.  An instance can be placed in the Reactor {@link reactor.util.context.Context} of a subscription under the
+ * {@code DopplerMetrics.class} key, and is populated with the metrics of each connection as it is opened.  A connection that is opened again under the same instance, for example by a
+ * repeated subscription, is recorded as a reconnect of the existing connection rather than as a new one.
+ */
+public final class DopplerMetrics {
+
+    private final List<DopplerShardMetrics> shards = new CopyOnWriteArrayList<>();
+
+    /**
+     * Returns the metrics of each connection
+     *
+     * @return the metrics of each connection
+     */
+    public List<DopplerShardMetrics> getShards() {
+        return Collections.unmodifiableList(this.shards);
+    }
+
+    synchronized DopplerShardMetrics connected(int shard) {
+        for (DopplerShardMetrics metrics : this.shards) {
+            if (metrics.getShard() == shard) {
+                metrics.reconnected();
+                return metrics;
+            }
+        }
+
+        DopplerShardMetrics metrics = new DopplerShardMetrics(shard);
+        this.shards.add(metrics);
+        return metrics;
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.doppler;
+
+import org.cloudfoundry.doppler.Envelope;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics describing a single Doppler connection
+ */
+public final class DopplerShardMetrics {
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private final LongAdder receivedCount = new LongAdder();
+
+    private final LongAdder reconnectCount = new LongAdder();
+
+    private final int shard;
+
+    private volatile long timestamp;
+
+    DopplerShardMetrics(int shard) {
+        this.shard = shard;
+    }
+
+    /**
+     * Returns the number of envelopes dropped because the consumer was not keeping up
+     *
+     * @return the number of dropped envelopes
+     */
+    public long getDroppedCount() {
+        return this.droppedCount.sum();
+    }
+
+    /**
+     * Returns the time, in milliseconds, between when the most recently received envelope was created and now
+     *
+     * @return the lag of the connection
+     */
+    public long getLag() {
+        long timestamp = this.timestamp;
+        return timestamp == 0 ? 0 : Math.max(0, System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(timestamp));
+    }
+
+    /**
+     * Returns the number of envelopes received
+     *
+     * @return the number of received envelopes
+     */
+    public long getReceivedCount() {
+        return this.receivedCount.sum();
+    }
+
+    /**
+     * Returns the number of times the connection has been re-established
+     *
+     * @return the number of reconnects
+     */
+    public long getReconnectCount() {
+        return this.reconnectCount.sum();
+    }
+
+    /**
+     * Returns the index of the connection
+     *
+     * @return the index of the connection
+     */
+    public int getShard() {
+        return this.shard;
+    }
+
+    void dropped() {
+        this.droppedCount.increment();
+    }
+
+    void received(Envelope envelope) {
+        this.receivedCount.increment();
+
+        if (envelope.getTimestamp() != null) {
+            this.timestamp = envelope.getTimestamp();
+        }
+    }
+
+    void reconnected() {
+        this.reconnectCount.increment();
+    }
+
+}
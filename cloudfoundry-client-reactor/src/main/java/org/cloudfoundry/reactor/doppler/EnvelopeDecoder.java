@@ -0,0 +1,310 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.doppler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import org.cloudfoundry.doppler.Envelope;
+import org.cloudfoundry.doppler.EventType;
+import org.cloudfoundry.doppler.LogMessage;
+import org.cloudfoundry.doppler.MessageType;
+import reactor.core.Exceptions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decodes dropsonde {@link Envelope}s directly from the {@link ByteBuf} they were received in.  Envelopes containing a {@link LogMessage}, by far the most common on the firehose and log streams, are
+ * read field-by-field into the immutable types without creating the intermediate Wire representation.  All other envelopes, and any envelope the fast path cannot read, are decoded with
+ * Wire.
+ */
+final class EnvelopeDecoder {
+
+    private static final int EVENT_TYPE_LOG_MESSAGE = 5;
+
+    private static final int FIXED32 = 5;
+
+    private static final int FIXED64 = 1;
+
+    private static final int LENGTH_DELIMITED = 2;
+
+    private static final int MESSAGE_TYPE_ERR = 2;
+
+    private static final int MESSAGE_TYPE_OUT = 1;
+
+    private static final int VARINT = 0;
+
+    private EnvelopeDecoder() {
+    }
+
+    /**
+     * Decodes an {@link Envelope}.  The {@link ByteBuf} is not consumed or released.
+     *
+     * @param byteBuf the encoded envelope
+     * @return the decoded envelope
+     */
+    static Envelope decode(ByteBuf byteBuf) {
+        Envelope envelope;
+
+        try {
+            envelope = decodeEnvelope(byteBuf.duplicate());
+        } catch (RuntimeException e) {
+            envelope = null;
+        }
+
+        return envelope != null ? envelope : decodeWire(byteBuf);
+    }
+
+    private static Envelope decodeEnvelope(ByteBuf in) {
+        Envelope.Builder builder = Envelope.builder();
+        Map<String, String> tags = new HashMap<>();
+
+        while (in.isReadable()) {
+            long key = readVarint(in);
+            int wireType = (int) (key & 0x7);
+
+            switch ((int) (key >>> 3)) {
+                case 1:
+                    if (wireType != LENGTH_DELIMITED) {
+                        return null;
+                    }
+                    builder.origin(readString(in));
+                    break;
+                case 2:
+                    if (wireType != VARINT || readVarint(in) != EVENT_TYPE_LOG_MESSAGE) {
+                        return null;
+                    }
+                    builder.eventType(EventType.LOG_MESSAGE);
+                    break;
+                case 6:
+                    if (wireType != VARINT) {
+                        return null;
+                    }
+                    builder.timestamp(readVarint(in));
+                    break;
+                case 8:
+                    LogMessage logMessage = wireType == LENGTH_DELIMITED ? decodeLogMessage(readSlice(in)) : null;
+                    if (logMessage == null) {
+                        return null;
+                    }
+                    builder.logMessage(logMessage);
+                    break;
+                case 13:
+                    if (wireType != LENGTH_DELIMITED) {
+                        return null;
+                    }
+                    builder.deployment(readString(in));
+                    break;
+                case 14:
+                    if (wireType != LENGTH_DELIMITED) {
+                        return null;
+                    }
+                    builder.job(readString(in));
+                    break;
+                case 15:
+                    if (wireType != LENGTH_DELIMITED) {
+                        return null;
+                    }
+                    builder.index(readString(in));
+                    break;
+                case 16:
+                    if (wireType != LENGTH_DELIMITED) {
+                        return null;
+                    }
+                    builder.ip(readString(in));
+                    break;
+                case 17:
+                    if (wireType != LENGTH_DELIMITED || !decodeTag(readSlice(in), tags)) {
+                        return null;
+                    }
+                    break;
+                case 7:
+                case 9:
+                case 10:
+                case 11:
+                case 12:
+                    return null;
+                default:
+                    if (!skip(in, wireType)) {
+                        return null;
+                    }
+            }
+        }
+
+        return builder
+            .tags(tags)
+            .build();
+    }
+
+    private static LogMessage decodeLogMessage(ByteBuf in) {
+        LogMessage.Builder builder = LogMessage.builder();
+
+        while (in.isReadable()) {
+            long key = readVarint(in);
+            int wireType = (int) (key & 0x7);
+
+            switch ((int) (key >>> 3)) {
+                case 1:
+                    if (wireType != LENGTH_DELIMITED) {
+                        return null;
+                    }
+                    builder.message(readString(in));
+                    break;
+                case 2:
+                    MessageType messageType = wireType == VARINT ? toMessageType(readVarint(in)) : null;
+                    if (messageType == null) {
+                        return null;
+                    }
+                    builder.messageType(messageType);
+                    break;
+                case 3:
+                    if (wireType != VARINT) {
+                        return null;
+                    }
+                    builder.timestamp(readVarint(in));
+                    break;
+                case 4:
+                    if (wireType != LENGTH_DELIMITED) {
+                        return null;
+                    }
+                    builder.applicationId(readString(in));
+                    break;
+                case 5:
+                    if (wireType != LENGTH_DELIMITED) {
+                        return null;
+                    }
+                    builder.sourceType(readString(in));
+                    break;
+                case 6:
+                    if (wireType != LENGTH_DELIMITED) {
+                        return null;
+                    }
+                    builder.sourceInstance(readString(in));
+                    break;
+                default:
+                    if (!skip(in, wireType)) {
+                        return null;
+                    }
+            }
+        }
+
+        return builder.build();
+    }
+
+    private static boolean decodeTag(ByteBuf in, Map<String, String> tags) {
+        String key = null;
+        String value = null;
+
+        while (in.isReadable()) {
+            long fieldKey = readVarint(in);
+            int wireType = (int) (fieldKey & 0x7);
+            int field = (int) (fieldKey >>> 3);
+
+            if (field == 1 && wireType == LENGTH_DELIMITED) {
+                key = readString(in);
+            } else if (field == 2 && wireType == LENGTH_DELIMITED) {
+                value = readString(in);
+            } else if (!skip(in, wireType)) {
+                return false;
+            }
+        }
+
+        if (key == null) {
+            return false;
+        }
+
+        tags.put(key, value != null ? value : "");
+        return true;
+    }
+
+    private static Envelope decodeWire(ByteBuf byteBuf) {
+        try (InputStream in = new ByteBufInputStream(byteBuf.duplicate())) {
+            return Envelope.from(org.cloudfoundry.dropsonde.events.Envelope.ADAPTER.decode(in));
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private static int readLength(ByteBuf in) {
+        long length = readVarint(in);
+
+        if (length < 0 || length > in.readableBytes()) {
+            throw new IndexOutOfBoundsException(String.format("Length %d exceeds %d readable bytes", length, in.readableBytes()));
+        }
+
+        return (int) length;
+    }
+
+    private static ByteBuf readSlice(ByteBuf in) {
+        return in.readSlice(readLength(in));
+    }
+
+    private static String readString(ByteBuf in) {
+        int length = readLength(in);
+        String s = in.toString(in.readerIndex(), length, StandardCharsets.UTF_8);
+        in.skipBytes(length);
+        return s;
+    }
+
+    private static long readVarint(ByteBuf in) {
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IndexOutOfBoundsException("Malformed varint");
+    }
+
+    private static boolean skip(ByteBuf in, int wireType) {
+        switch (wireType) {
+            case VARINT:
+                readVarint(in);
+                return true;
+            case FIXED64:
+                in.skipBytes(8);
+                return true;
+            case LENGTH_DELIMITED:
+                in.skipBytes(readLength(in));
+                return true;
+            case FIXED32:
+                in.skipBytes(4);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static MessageType toMessageType(long value) {
+        if (value == MESSAGE_TYPE_OUT) {
+            return MessageType.OUT;
+        } else if (value == MESSAGE_TYPE_ERR) {
+            return MessageType.ERR;
+        } else {
+            return null;
+        }
+    }
+
+}
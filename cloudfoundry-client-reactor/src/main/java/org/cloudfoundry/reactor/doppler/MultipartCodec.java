@@ -16,13 +16,13 @@
 
 package org.cloudfoundry.reactor.doppler;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.DelimiterBasedFrameDecoder;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import reactor.core.publisher.Flux;
 import reactor.ipc.netty.http.client.HttpClientResponse;
 
-import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -36,11 +36,10 @@ final class MultipartCodec {
     private MultipartCodec() {
     }
 
-    static Flux<InputStream> decode(HttpClientResponse response) {
+    static Flux<ByteBuf> decode(HttpClientResponse response) {
         return response
             .addHandler(createDecoder(response))
             .receive()
-            .asInputStream()
             .skip(1);
     }
 
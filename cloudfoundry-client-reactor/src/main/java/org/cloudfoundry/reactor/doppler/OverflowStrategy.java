@@ -0,0 +1,39 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.doppler;
+
+/**
+ * The strategies for handling envelopes that arrive while a slow consumer's buffer is full
+ */
+public enum OverflowStrategy {
+
+    /**
+     * Drop the envelope that has just arrived, keeping the buffered envelopes
+     */
+    DROP_NEWEST,
+
+    /**
+     * Drop the oldest buffered envelope to make room for the envelope that has just arrived
+     */
+    DROP_OLDEST,
+
+    /**
+     * Admit one in every {@link SlowConsumerPolicy#getSampleRate() sample rate} arriving envelopes, in place of the oldest buffered envelope, and drop the rest
+     */
+    SAMPLE
+
+}
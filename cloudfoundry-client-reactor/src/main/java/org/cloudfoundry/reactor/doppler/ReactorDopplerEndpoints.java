@@ -16,6 +16,7 @@
 
 package org.cloudfoundry.reactor.doppler;
 
+import org.cloudfoundry.AbstractCloudFoundryException;
 import org.cloudfoundry.doppler.ContainerMetricsRequest;
 import org.cloudfoundry.doppler.Envelope;
 import org.cloudfoundry.doppler.FirehoseRequest;
@@ -23,15 +24,23 @@ import org.cloudfoundry.doppler.RecentLogsRequest;
 import org.cloudfoundry.doppler.StreamRequest;
 import org.cloudfoundry.reactor.ConnectionContext;
 import org.cloudfoundry.reactor.TokenProvider;
-import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.concurrent.Queues;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 final class ReactorDopplerEndpoints extends AbstractDopplerOperations {
 
+    private static final Duration MAXIMUM_BACKOFF = Duration.ofSeconds(30);
+
+    private static final Duration MINIMUM_BACKOFF = Duration.ofSeconds(1);
+
+    private static final int SHARD_BUFFER_SIZE = Queues.SMALL_BUFFER_SIZE;
+
     ReactorDopplerEndpoints(ConnectionContext connectionContext, Mono<String> root, TokenProvider tokenProvider) {
         super(connectionContext, root, tokenProvider);
     }
@@ -39,37 +48,92 @@ final class ReactorDopplerEndpoints extends AbstractDopplerOperations {
     Flux<Envelope> containerMetrics(ContainerMetricsRequest request) {
         return get(builder -> builder.pathSegment("apps", request.getApplicationId(), "containermetrics"))
             .flatMapMany(response -> MultipartCodec.decode(response)
-                .map(ReactorDopplerEndpoints::toEnvelope))
+                .map(EnvelopeDecoder::decode))
             .checkpoint();
     }
 
     Flux<Envelope> firehose(FirehoseRequest request) {
-        return ws(builder -> builder.pathSegment("firehose", request.getSubscriptionId()))
-            .flatMapMany(response -> response.receiveWebsocket().aggregateFrames().receive().asInputStream()
-                .map(ReactorDopplerEndpoints::toEnvelope))
+        Integer shards = request.getShards();
+
+        return Mono.subscriberContext()
+            .flatMapMany(context -> {
+                DopplerMetrics metrics = context.getOrDefault(DopplerMetrics.class, new DopplerMetrics());
+                Optional<SlowConsumerPolicy> policy = context.getOrEmpty(SlowConsumerPolicy.class);
+
+                if (shards == null) {
+                    return buffer(firehose(request.getSubscriptionId()), policy, metrics.connected(0));
+                }
+
+                return Flux.range(0, shards)
+                    .map(shard -> shard(request.getSubscriptionId(), policy, metrics.connected(shard)))
+                    .flatMap(Function.identity(), shards, SHARD_BUFFER_SIZE);
+            })
             .checkpoint();
     }
 
     Flux<Envelope> recentLogs(RecentLogsRequest request) {
         return get(builder -> builder.pathSegment("apps", request.getApplicationId(), "recentlogs"))
             .flatMapMany(response -> MultipartCodec.decode(response)
-                .map(ReactorDopplerEndpoints::toEnvelope))
+                .map(EnvelopeDecoder::decode))
             .checkpoint();
     }
 
     Flux<Envelope> stream(StreamRequest request) {
-        return ws(builder -> builder.pathSegment("apps", request.getApplicationId(), "stream"))
-            .flatMapMany(response -> response.receiveWebsocket().aggregateFrames().receive().asInputStream()
-                .map(ReactorDopplerEndpoints::toEnvelope))
+        return Mono.subscriberContext()
+            .flatMapMany(context -> {
+                DopplerMetrics metrics = context.getOrDefault(DopplerMetrics.class, new DopplerMetrics());
+                Optional<SlowConsumerPolicy> policy = context.getOrEmpty(SlowConsumerPolicy.class);
+
+                return buffer(stream(request.getApplicationId()), policy, metrics.connected(0));
+            })
             .checkpoint();
     }
 
-    private static Envelope toEnvelope(InputStream content) {
-        try (InputStream in = content) {
-            return Envelope.from(org.cloudfoundry.dropsonde.events.Envelope.ADAPTER.decode(in));
-        } catch (IOException e) {
-            throw Exceptions.propagate(e);
-        }
+    private static Flux<Envelope> buffer(Flux<Envelope> envelopes, Optional<SlowConsumerPolicy> policy, DopplerShardMetrics metrics) {
+        Flux<Envelope> received = envelopes
+            .doOnNext(metrics::received);
+
+        return policy
+            .map(p -> SlowConsumerBuffer.buffer(received, p, metrics))
+            .orElse(received);
+    }
+
+    private static Duration getBackoff(int attempt) {
+        return attempt >= 5 ? MAXIMUM_BACKOFF : MINIMUM_BACKOFF.multipliedBy(1L << attempt);
+    }
+
+    private static boolean isReconnectable(Throwable t) {
+        return !(t instanceof AbstractCloudFoundryException) || ((AbstractCloudFoundryException) t).getStatusCode() >= 500;
+    }
+
+    private static Mono<Long> reconnect(DopplerShardMetrics metrics, AtomicInteger attempts) {
+        return Mono.delay(getBackoff(attempts.getAndIncrement()))
+            .doOnNext(n -> metrics.reconnected());
+    }
+
+    private Flux<Envelope> firehose(String subscriptionId) {
+        return ws(builder -> builder.pathSegment("firehose", subscriptionId))
+            .flatMapMany(response -> response.receiveWebsocket().aggregateFrames().receive()
+                .map(EnvelopeDecoder::decode));
+    }
+
+    private Flux<Envelope> shard(String subscriptionId, Optional<SlowConsumerPolicy> policy, DopplerShardMetrics metrics) {
+        AtomicInteger attempts = new AtomicInteger();
+
+        Flux<Envelope> envelopes = firehose(subscriptionId)
+            .doOnNext(envelope -> attempts.set(0))
+            .repeatWhen(completions -> completions
+                .concatMap(n -> reconnect(metrics, attempts)))
+            .retryWhen(errors -> errors
+                .concatMap(error -> isReconnectable(error) ? reconnect(metrics, attempts) : Mono.error(error)));
+
+        return buffer(envelopes, policy, metrics);
+    }
+
+    private Flux<Envelope> stream(String applicationId) {
+        return ws(builder -> builder.pathSegment("apps", applicationId, "stream"))
+            .flatMapMany(response -> response.receiveWebsocket().aggregateFrames().receive()
+                .map(EnvelopeDecoder::decode));
     }
 
 }
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.doppler;
+
+import org.cloudfoundry.doppler.CounterEvent;
+import org.cloudfoundry.doppler.Envelope;
+import org.cloudfoundry.doppler.Error;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxOperator;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Requests envelopes from the source without bound and holds them in a bounded buffer until the subscriber requests them.  Once the buffer is full, envelopes are dropped according to a {@link
+ * SlowConsumerPolicy} and counted in a {@link DopplerShardMetrics}.  The {@link OverflowStrategy#DROP_NEWEST} and {@link OverflowStrategy#DROP_OLDEST} strategies are provided by {@link
+ * Flux#onBackpressureBuffer(int, Consumer, BufferOverflowStrategy)}, and this operator implements only {@link OverflowStrategy#SAMPLE}.
+ */
+final class SlowConsumerBuffer extends FluxOperator<Envelope, Envelope> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("cloudfoundry-client.doppler");
+
+    private static final Set<String> SLOW_CONSUMER_COUNTERS = new HashSet<>(Arrays.asList("TruncatingBuffer.DroppedMessages", "doppler_proxy.slow_consumer"));
+
+    private final int capacity;
+
+    private final DopplerShardMetrics metrics;
+
+    private final int sampleRate;
+
+    private SlowConsumerBuffer(Flux<Envelope> source, int capacity, int sampleRate, DopplerShardMetrics metrics) {
+        super(source);
+        this.capacity = capacity;
+        this.metrics = metrics;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public void subscribe(CoreSubscriber<? super Envelope> actual) {
+        this.source.subscribe(new SampleSubscriber(actual, this.capacity, this.sampleRate, this.metrics));
+    }
+
+    /**
+     * Buffers envelopes according to a {@link SlowConsumerPolicy}.  Slow consumer alerts are passed to the policy's alert handler on another thread, so that a slow or failing handler cannot stall
+     * or terminate the stream.
+     *
+     * @param source  the envelopes to buffer
+     * @param policy  the policy to buffer with
+     * @param metrics the metrics to count dropped envelopes in
+     * @return the buffered envelopes
+     */
+    static Flux<Envelope> buffer(Flux<Envelope> source, SlowConsumerPolicy policy, DopplerShardMetrics metrics) {
+        Flux<Envelope> envelopes = policy.getSlowConsumerAlertHandler()
+            .map(handler -> source
+                .doOnNext(envelope -> {
+                    if (isSlowConsumerAlert(envelope)) {
+                        alert(handler, envelope);
+                    }
+                }))
+            .orElse(source);
+
+        switch (policy.getOverflowStrategy()) {
+            case DROP_NEWEST:
+                return envelopes.onBackpressureBuffer(policy.getBufferSize(), envelope -> metrics.dropped(), BufferOverflowStrategy.DROP_LATEST);
+            case DROP_OLDEST:
+                return envelopes.onBackpressureBuffer(policy.getBufferSize(), envelope -> metrics.dropped(), BufferOverflowStrategy.DROP_OLDEST);
+            default:
+                return new SlowConsumerBuffer(envelopes, policy.getBufferSize(), policy.getSampleRate(), metrics);
+        }
+    }
+
+    static boolean isSlowConsumerAlert(Envelope envelope) {
+        CounterEvent counterEvent = envelope.getCounterEvent();
+        if (counterEvent != null && SLOW_CONSUMER_COUNTERS.contains(counterEvent.getName())) {
+            return true;
+        }
+
+        Error error = envelope.getError();
+        return error != null && error.getMessage().toLowerCase(Locale.ENGLISH).contains("slow consumer");
+    }
+
+    private static void alert(Consumer<Envelope> handler, Envelope envelope) {
+        Schedulers.elastic().schedule(() -> {
+            try {
+                handler.accept(envelope);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Slow consumer alert handler failed", e);
+            }
+        });
+    }
+
+    private static final class SampleSubscriber implements CoreSubscriber<Envelope>, Subscription {
+
+        private final CoreSubscriber<? super Envelope> actual;
+
+        private final int capacity;
+
+        private final DopplerShardMetrics metrics;
+
+        private final ArrayDeque<Envelope> queue;
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private final int sampleRate;
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private volatile boolean cancelled;
+
+        private volatile boolean done;
+
+        private Throwable error;
+
+        private long overflowed;
+
+        private Subscription s;
+
+        private SampleSubscriber(CoreSubscriber<? super Envelope> actual, int capacity, int sampleRate, DopplerShardMetrics metrics) {
+            this.actual = actual;
+            this.capacity = capacity;
+            this.metrics = metrics;
+            this.queue = new ArrayDeque<>(Math.min(capacity, 1024));
+            this.sampleRate = sampleRate;
+        }
+
+        @Override
+        public void cancel() {
+            if (this.cancelled) {
+                return;
+            }
+
+            this.cancelled = true;
+            this.s.cancel();
+
+            if (this.wip.getAndIncrement() == 0) {
+                clear();
+            }
+        }
+
+        @Override
+        public Context currentContext() {
+            return this.actual.currentContext();
+        }
+
+        @Override
+        public void onComplete() {
+            this.done = true;
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            this.error = t;
+            this.done = true;
+            drain();
+        }
+
+        @Override
+        public void onNext(Envelope envelope) {
+            synchronized (this.queue) {
+                if (this.queue.size() < this.capacity) {
+                    this.overflowed = 0;
+                    this.queue.offer(envelope);
+                } else if (this.overflowed++ % this.sampleRate == 0) {
+                    this.queue.poll();
+                    this.queue.offer(envelope);
+                    this.metrics.dropped();
+                } else {
+                    this.metrics.dropped();
+                }
+            }
+
+            drain();
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (Operators.validate(this.s, s)) {
+                this.s = s;
+                this.actual.onSubscribe(this);
+                s.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (Operators.validate(n)) {
+                this.requested.accumulateAndGet(n, Operators::addCap);
+                drain();
+            }
+        }
+
+        private void clear() {
+            synchronized (this.queue) {
+                this.queue.clear();
+            }
+        }
+
+        private void drain() {
+            if (this.wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+
+            do {
+                long r = this.requested.get();
+                long e = 0;
+
+                while (e != r) {
+                    if (this.cancelled) {
+                        clear();
+                        return;
+                    }
+
+                    boolean d = this.done;
+                    Envelope envelope = poll();
+
+                    if (d && envelope == null) {
+                        terminate();
+                        return;
+                    }
+
+                    if (envelope == null) {
+                        break;
+                    }
+
+                    this.actual.onNext(envelope);
+                    e++;
+                }
+
+                if (e == r) {
+                    if (this.cancelled) {
+                        clear();
+                        return;
+                    }
+
+                    if (this.done && isEmpty()) {
+                        terminate();
+                        return;
+                    }
+                }
+
+                if (e != 0 && r != Long.MAX_VALUE) {
+                    this.requested.addAndGet(-e);
+                }
+
+                missed = this.wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private boolean isEmpty() {
+            synchronized (this.queue) {
+                return this.queue.isEmpty();
+            }
+        }
+
+        private Envelope poll() {
+            synchronized (this.queue) {
+                return this.queue.poll();
+            }
+        }
+
+        private void terminate() {
+            Throwable error = this.error;
+
+            if (error != null) {
+                this.actual.onError(error);
+            } else {
+                this.actual.onComplete();
+            }
+        }
+
+    }
+
+}
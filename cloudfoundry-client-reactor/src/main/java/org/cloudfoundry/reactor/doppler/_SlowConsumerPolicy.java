@@ -0,0 +1,76 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.doppler;
+
+import org.cloudfoundry.doppler.Envelope;
+import org.immutables.value.Value;
+import reactor.util.concurrent.Queues;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * How a Doppler stream sheds load when its subscriber falls behind.  A policy can be placed in the Reactor {@link reactor.util.context.Context} of a {@code firehose} or {@code stream}
+ * subscription under the {@code SlowConsumerPolicy.class} key.  Envelopes are then received as fast as Doppler sends them, held in a buffer of {@link #getBufferSize() buffer size}, and dropped
+ * according to the {@link #getOverflowStrategy() overflow strategy} once that buffer is full.  Dropped envelopes are counted in the {@link DopplerMetrics} of the subscription.  Without a
+ * policy, sharded or not, envelopes are only received as quickly as the subscriber requests them and none are dropped.
+ */
+@Value.Immutable
+abstract class _SlowConsumerPolicy {
+
+    @Value.Check
+    void check() {
+        if (getBufferSize() < 1) {
+            throw new IllegalStateException("Cannot build SlowConsumerPolicy, buffer size must be at least 1");
+        }
+
+        if (getSampleRate() < 1) {
+            throw new IllegalStateException("Cannot build SlowConsumerPolicy, sample rate must be at least 1");
+        }
+    }
+
+    /**
+     * The number of envelopes buffered for the subscriber
+     */
+    @Value.Default
+    int getBufferSize() {
+        return Queues.SMALL_BUFFER_SIZE;
+    }
+
+    /**
+     * The strategy used once the buffer is full
+     */
+    @Value.Default
+    OverflowStrategy getOverflowStrategy() {
+        return OverflowStrategy.DROP_NEWEST;
+    }
+
+    /**
+     * The rate at which envelopes are admitted to a full buffer when using the {@link OverflowStrategy#SAMPLE} strategy
+     */
+    @Value.Default
+    int getSampleRate() {
+        return 10;
+    }
+
+    /**
+     * A callback invoked when Loggregator reports that this subscriber is a slow consumer, either with a {@code slowConsumerAlert} {@code CounterEvent} or an {@code Error}.  The callback is invoked
+     * on another thread, and any exception it throws is logged rather than terminating the stream.
+     */
+    abstract Optional<Consumer<Envelope>> getSlowConsumerAlertHandler();
+
+}
@@ -31,13 +31,18 @@ import org.immutables.value.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.ReplayProcessor;
+import reactor.core.scheduler.Schedulers;
 import reactor.ipc.netty.http.client.HttpClientRequest;
 import reactor.ipc.netty.http.client.HttpClientResponse;
 
+import javax.annotation.PreDestroy;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Base64;
@@ -46,6 +51,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -71,12 +77,31 @@ public abstract class AbstractUaaTokenProvider implements TokenProvider {
 
     private static final ZoneId UTC = ZoneId.of("UTC");
 
-    private final ConcurrentMap<ConnectionContext, Mono<String>> accessTokens = new ConcurrentHashMap<>(1);
+    private final ConcurrentMap<ConnectionContext, AccessToken> accessTokens = new ConcurrentHashMap<>(1);
+
+    private final TokenRefreshMetrics refreshMetrics = new TokenRefreshMetrics();
 
     private final ConcurrentMap<ConnectionContext, RefreshToken> refreshTokenStreams = new ConcurrentHashMap<>(1);
 
     private final ConcurrentMap<ConnectionContext, Mono<String>> refreshTokens = new ConcurrentHashMap<>(1);
 
+    @Value.Check
+    public final void checkProactiveRefreshRatio() {
+        Double ratio = getProactiveRefreshRatio();
+
+        if (ratio != null && (ratio <= 0 || ratio >= 1)) {
+            throw new IllegalArgumentException(String.format("Proactive refresh ratio %s must be greater than 0 and less than 1", ratio));
+        }
+    }
+
+    /**
+     * Cancels any scheduled proactive refreshes
+     */
+    @PreDestroy
+    public final void dispose() {
+        this.accessTokens.values().forEach(AccessToken::dispose);
+    }
+
     /**
      * The client id. Defaults to {@code cf}.
      */
@@ -93,6 +118,13 @@ public abstract class AbstractUaaTokenProvider implements TokenProvider {
         return "";
     }
 
+    /**
+     * Returns the metrics describing proactive access token refreshes
+     */
+    public TokenRefreshMetrics getRefreshMetrics() {
+        return this.refreshMetrics;
+    }
+
     /**
      * Returns a {@link Flux} of refresh tokens for a connection
      *
@@ -105,12 +137,29 @@ public abstract class AbstractUaaTokenProvider implements TokenProvider {
 
     @Override
     public final Mono<String> getToken(ConnectionContext connectionContext) {
-        return this.accessTokens.computeIfAbsent(connectionContext, this::token);
+        return this.accessTokens.computeIfAbsent(connectionContext, this::token).token;
     }
 
     @Override
     public void invalidate(ConnectionContext connectionContext) {
-        this.accessTokens.put(connectionContext, token(connectionContext));
+        Optional.ofNullable(this.accessTokens.put(connectionContext, token(connectionContext)))
+            .ifPresent(AccessToken::dispose);
+    }
+
+    @Override
+    public void invalidate(ConnectionContext connectionContext, String token) {
+        AccessToken current = this.accessTokens.get(connectionContext);
+
+        if (current == null) {
+            this.accessTokens.putIfAbsent(connectionContext, token(connectionContext));
+        } else if (token.equals(current.value)) {
+            if (this.accessTokens.replace(connectionContext, current, token(connectionContext))) {
+                current.dispose();
+                LOGGER.debug("Access token invalidated");
+            }
+        } else {
+            LOGGER.trace("Ignoring invalidation of superseded access token");
+        }
     }
 
     /**
@@ -119,6 +168,13 @@ public abstract class AbstractUaaTokenProvider implements TokenProvider {
     @Nullable
     abstract String getIdentityZoneSubdomain();
 
+    /**
+     * The fraction of an access token's lifetime after which a replacement token is negotiated in the background.  Must be greater than {@code 0} and less than {@code 1}.  If not set, access tokens
+     * are only renegotiated after a request is rejected as unauthorized.
+     */
+    @Nullable
+    abstract Double getProactiveRefreshRatio();
+
     /**
      * Transforms a {@code Mono} in order to make a request to negotiate an access token
      *
@@ -178,6 +234,11 @@ public abstract class AbstractUaaTokenProvider implements TokenProvider {
         }
     }
 
+    private static Optional<Claims> parseAccessToken(String accessToken) {
+        return parseToken(accessToken.substring(accessToken.indexOf(' ') + 1))
+            .filter(claims -> claims.getExpiration() != null);
+    }
+
     private static LocalDateTime toLocalDateTime(Date date) {
         return LocalDateTime.from(date.toInstant().atZone(UTC));
     }
@@ -257,19 +318,84 @@ public abstract class AbstractUaaTokenProvider implements TokenProvider {
             .transform(ErrorPayloadMapper.uaa(connectionContext.getObjectMapper()));
     }
 
-    private Mono<String> token(ConnectionContext connectionContext) {
+    private void scheduleRefresh(ConnectionContext connectionContext, AccessToken current, String accessToken) {
+        Double ratio = getProactiveRefreshRatio();
+        if (ratio == null) {
+            return;
+        }
+
+        parseAccessToken(accessToken)
+            .ifPresent(claims -> {
+                long now = Schedulers.parallel().now(TimeUnit.MILLISECONDS);
+                long expiration = claims.getExpiration().getTime();
+                long issuedAt = Optional.ofNullable(claims.getIssuedAt()).map(Date::getTime).orElse(now);
+                long delay = Math.max(0, issuedAt + (long) ((expiration - issuedAt) * ratio) - now);
+
+                LOGGER.debug("Scheduling proactive access token refresh in {} ms", delay);
+
+                current.refresh.update(Mono.delay(Duration.ofMillis(delay))
+                    .filter(tick -> this.accessTokens.get(connectionContext) == current)
+                    .flatMap(tick -> {
+                        long start = Schedulers.parallel().now(TimeUnit.MILLISECONDS);
+                        AccessToken next = token(connectionContext);
+
+                        return next.token
+                            .doOnNext(token -> {
+                                long end = Schedulers.parallel().now(TimeUnit.MILLISECONDS);
+
+                                if (this.accessTokens.replace(connectionContext, current, next)) {
+                                    this.refreshMetrics.refresh(end - start, end < expiration);
+                                } else {
+                                    next.dispose();
+                                }
+                            });
+                    })
+                    .subscribe(null, t -> {
+                        this.refreshMetrics.failure();
+                        LOGGER.warn("Proactive access token refresh failed", t);
+                    }));
+            });
+    }
+
+    private AccessToken token(ConnectionContext connectionContext) {
+        AccessToken accessToken = new AccessToken();
+
         Mono<String> cached = this.refreshTokens.getOrDefault(connectionContext, Mono.empty())
             .flatMap(refreshToken -> refreshToken(connectionContext, refreshToken)
                 .doOnSubscribe(s -> LOGGER.debug("Negotiating using refresh token")))
             .switchIfEmpty(primaryToken(connectionContext)
                 .doOnSubscribe(s -> LOGGER.debug("Negotiating using token provider")))
             .transform(ErrorPayloadMapper.fallback())
-            .transform(extractTokens(connectionContext));
+            .transform(extractTokens(connectionContext))
+            .doOnNext(token -> {
+                accessToken.value = token;
+                scheduleRefresh(connectionContext, accessToken, token);
+            });
 
-        return connectionContext.getCacheDuration()
+        accessToken.token = connectionContext.getCacheDuration()
             .map(cached::cache)
             .orElseGet(cached::cache)
             .checkpoint();
+
+        return accessToken;
+    }
+
+    /**
+     * A single generation of access token for a connection.  Invalidations only replace the generation that produced the rejected token so that concurrent failures share one renegotiation.  Each
+     * generation holds at most one scheduled proactive refresh, which is cancelled when the generation is replaced.
+     */
+    private static final class AccessToken {
+
+        private final Disposable.Swap refresh = Disposables.swap();
+
+        private Mono<String> token;
+
+        private volatile String value;
+
+        private void dispose() {
+            this.refresh.dispose();
+        }
+
     }
 
     private static final class RefreshToken {
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.tokenprovider;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics describing the proactive access token refreshes of an {@link AbstractUaaTokenProvider}
+ */
+public final class TokenRefreshMetrics {
+
+    private final LongAdder failures = new LongAdder();
+
+    private final AtomicLong lastLatency = new AtomicLong(-1);
+
+    private final LongAdder refreshedBeforeExpiration = new LongAdder();
+
+    private final LongAdder refreshes = new LongAdder();
+
+    private final LongAdder totalLatency = new LongAdder();
+
+    /**
+     * Returns the duration, in milliseconds, of the most recent successful proactive refresh or {@code -1} if none has completed.
+     */
+    public long getLastRefreshLatency() {
+        return this.lastLatency.get();
+    }
+
+    /**
+     * Returns the mean duration, in milliseconds, of successful proactive refreshes or {@code -1} if none has completed.
+     */
+    public long getMeanRefreshLatency() {
+        long count = this.refreshes.sum();
+        return count == 0 ? -1 : this.totalLatency.sum() / count;
+    }
+
+    /**
+     * Returns the number of successful proactive refreshes.
+     */
+    public long getRefreshCount() {
+        return this.refreshes.sum();
+    }
+
+    /**
+     * Returns the number of failed proactive refreshes.
+     */
+    public long getRefreshFailureCount() {
+        return this.failures.sum();
+    }
+
+    /**
+     * Returns the number of proactive refreshes that replaced an access token before it expired.
+     */
+    public long getRefreshedBeforeExpirationCount() {
+        return this.refreshedBeforeExpiration.sum();
+    }
+
+    void failure() {
+        this.failures.increment();
+    }
+
+    void refresh(long latency, boolean beforeExpiration) {
+        this.lastLatency.set(latency);
+        this.totalLatency.add(latency);
+        this.refreshes.increment();
+
+        if (beforeExpiration) {
+            this.refreshedBeforeExpiration.increment();
+        }
+    }
+
+}
@@ -19,14 +19,20 @@ package org.cloudfoundry.reactor.util;
 
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.util.AsciiString;
+import org.cloudfoundry.AbstractCloudFoundryException;
 import org.cloudfoundry.reactor.ConnectionContext;
 import org.cloudfoundry.reactor.TokenProvider;
 import org.reactivestreams.Publisher;
+import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.ipc.netty.http.client.HttpClientRequest;
 import reactor.ipc.netty.http.client.HttpClientResponse;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.function.Function;
 
 import static io.netty.handler.codec.http.HttpHeaderNames.AUTHORIZATION;
@@ -36,12 +42,18 @@ public abstract class AbstractReactorOperations {
 
     protected static final AsciiString APPLICATION_ZIP = new AsciiString("application/zip");
 
+    private static final Duration UPLOAD_MAXIMUM_BACKOFF = Duration.ofSeconds(30);
+
+    private static final Duration UPLOAD_MINIMUM_BACKOFF = Duration.ofSeconds(1);
+
     private final ConnectionContext connectionContext;
 
     private final Mono<String> root;
 
     private final TokenProvider tokenProvider;
 
+    private volatile ParsedRoot parsedRoot;
+
     protected AbstractReactorOperations(ConnectionContext connectionContext, Mono<String> root, TokenProvider tokenProvider) {
         this.connectionContext = connectionContext;
         this.root = root;
@@ -63,17 +75,16 @@ public abstract class AbstractReactorOperations {
                                                       Function<Mono<HttpClientResponse>, Mono<HttpClientResponse>> responseTransformer) {
         return this.root
             .transform(transformUri(uriTransformer))
-            .flatMap(uri -> this.connectionContext.getHttpClient()
+            .flatMap(uri -> authorized(token -> this.connectionContext.getHttpClient()
                 .delete(uri, request -> Mono.just(request)
                     .map(AbstractReactorOperations::disableFailOnError)
-                    .transform(this::addAuthorization)
+                    .map(addAuthorization(token))
                     .map(UserAgent::addUserAgent)
                     .map(JsonCodec::addDecodeHeaders)
                     .transform(requestTransformer)
                     .transform(serializedRequest(requestPayload)))
                 .doOnSubscribe(NetworkLogging.delete(uri))
-                .transform(NetworkLogging.response(uri)))
-            .transform(this::invalidateToken)
+                .transform(NetworkLogging.response(uri))))
             .transform(responseTransformer)
             .transform(ErrorPayloadMapper.fallback());
     }
@@ -97,16 +108,15 @@ public abstract class AbstractReactorOperations {
                                                    Function<Mono<HttpClientResponse>, Mono<HttpClientResponse>> responseTransformer) {
         return this.root
             .transform(transformUri(uriTransformer))
-            .flatMap(uri -> this.connectionContext.getHttpClient()
+            .flatMap(uri -> authorized(token -> this.connectionContext.getHttpClient()
                 .get(uri, request -> Mono.just(request)
                     .map(AbstractReactorOperations::disableFailOnError)
-                    .transform(this::addAuthorization)
+                    .map(addAuthorization(token))
                     .map(UserAgent::addUserAgent)
                     .transform(requestTransformer)
                     .flatMap(HttpClientRequest::send))
                 .doOnSubscribe(NetworkLogging.get(uri))
-                .transform(NetworkLogging.response(uri)))
-            .transform(this::invalidateToken)
+                .transform(NetworkLogging.response(uri))))
             .transform(responseTransformer)
             .transform(ErrorPayloadMapper.fallback());
     }
@@ -129,17 +139,16 @@ public abstract class AbstractReactorOperations {
                                         Function<Mono<HttpClientResponse>, Mono<HttpClientResponse>> responseTransformer) {
         return this.root
             .transform(transformUri(uriTransformer))
-            .flatMap(uri -> this.connectionContext.getHttpClient()
+            .flatMap(uri -> authorized(token -> this.connectionContext.getHttpClient()
                 .patch(uri, request -> Mono.just(request)
                     .map(AbstractReactorOperations::disableChunkedTransfer)
                     .map(AbstractReactorOperations::disableFailOnError)
-                    .transform(this::addAuthorization)
+                    .map(addAuthorization(token))
                     .map(UserAgent::addUserAgent)
                     .map(JsonCodec::addDecodeHeaders)
                     .transform(requestTransformer))
                 .doOnSubscribe(NetworkLogging.patch(uri))
-                .transform(NetworkLogging.response(uri)))
-            .transform(this::invalidateToken)
+                .transform(NetworkLogging.response(uri))))
             .transform(responseTransformer)
             .transform(ErrorPayloadMapper.fallback())
             .transform(deserializedResponse(responseType));
@@ -163,17 +172,16 @@ public abstract class AbstractReactorOperations {
                                        Function<Mono<HttpClientResponse>, Mono<HttpClientResponse>> responseTransformer) {
         return this.root
             .transform(transformUri(uriTransformer))
-            .flatMap(uri -> this.connectionContext.getHttpClient()
+            .flatMap(uri -> authorized(token -> this.connectionContext.getHttpClient()
                 .post(uri, request -> Mono.just(request)
                     .map(AbstractReactorOperations::disableChunkedTransfer)
                     .map(AbstractReactorOperations::disableFailOnError)
-                    .transform(this::addAuthorization)
+                    .map(addAuthorization(token))
                     .map(UserAgent::addUserAgent)
                     .map(JsonCodec::addDecodeHeaders)
                     .transform(requestTransformer))
                 .doOnSubscribe(NetworkLogging.post(uri))
-                .transform(NetworkLogging.response(uri)))
-            .transform(this::invalidateToken)
+                .transform(NetworkLogging.response(uri))))
             .transform(responseTransformer)
             .transform(ErrorPayloadMapper.fallback())
             .transform(deserializedResponse(responseType));
@@ -197,17 +205,16 @@ public abstract class AbstractReactorOperations {
                                       Function<Mono<HttpClientResponse>, Mono<HttpClientResponse>> responseTransformer) {
         return this.root
             .transform(transformUri(uriTransformer))
-            .flatMap(uri -> this.connectionContext.getHttpClient()
+            .flatMap(uri -> authorized(token -> this.connectionContext.getHttpClient()
                 .put(uri, request -> Mono.just(request)
                     .map(AbstractReactorOperations::disableChunkedTransfer)
                     .map(AbstractReactorOperations::disableFailOnError)
-                    .transform(this::addAuthorization)
+                    .map(addAuthorization(token))
                     .map(UserAgent::addUserAgent)
                     .map(JsonCodec::addDecodeHeaders)
                     .transform(requestTransformer))
                 .doOnSubscribe(NetworkLogging.put(uri))
-                .transform(NetworkLogging.response(uri)))
-            .transform(this::invalidateToken)
+                .transform(NetworkLogging.response(uri))))
             .transform(responseTransformer)
             .transform(ErrorPayloadMapper.fallback())
             .transform(deserializedResponse(responseType));
@@ -218,20 +225,40 @@ public abstract class AbstractReactorOperations {
                                                   Function<Mono<HttpClientResponse>, Mono<HttpClientResponse>> responseTransformer) {
         return this.root
             .transform(transformUri(uriTransformer))
-            .flatMap(uri -> this.connectionContext.getHttpClient()
+            .flatMap(uri -> authorized(token -> this.connectionContext.getHttpClient()
                 .get(uri, request -> Mono.just(request)
                     .map(AbstractReactorOperations::disableFailOnError)
-                    .transform(this::addAuthorization)
+                    .map(addAuthorization(token))
                     .map(UserAgent::addUserAgent)
                     .transform(requestTransformer)
                     .flatMapMany(HttpClientRequest::sendWebsocket))
                 .doOnSubscribe(NetworkLogging.ws(uri))
-                .transform(NetworkLogging.response(uri)))
-            .transform(this::invalidateToken)
+                .transform(NetworkLogging.response(uri))))
             .transform(responseTransformer)
             .transform(ErrorPayloadMapper.fallback());
     }
 
+    /**
+     * Retries an upload, in its entirety, after a transport failure or a gateway error, up to the number of {@link ConnectionContext#getUploadRetries() upload retries} configured
+     *
+     * @param <T> the type of the upload response
+     * @return a {@link Function} that adds retries to an upload
+     */
+    protected final <T> Function<Mono<T>, Mono<T>> uploadRetry() {
+        int retries = this.connectionContext.getUploadRetries().orElse(0);
+
+        return upload -> upload
+            .retryWhen(errors -> errors
+                .zipWith(Flux.range(0, Integer.MAX_VALUE))
+                .concatMap(function((error, attempt) -> {
+                    if (attempt >= retries || !isRetryableUpload(error)) {
+                        return Mono.error(error);
+                    }
+
+                    return Mono.delay(getUploadBackoff(attempt));
+                })));
+    }
+
     private static HttpClientRequest disableChunkedTransfer(HttpClientRequest request) {
         return request.chunkedTransfer(false);
     }
@@ -242,41 +269,57 @@ public abstract class AbstractReactorOperations {
             .failOnServerError(false);
     }
 
-    private static boolean isUnauthorized(HttpClientResponse response) {
-        return response.status() == HttpResponseStatus.UNAUTHORIZED;
+    private static Function<HttpClientRequest, HttpClientRequest> addAuthorization(String token) {
+        return request -> request.header(AUTHORIZATION, token);
     }
 
-    private static Function<Mono<String>, Mono<String>> transformUri(Function<UriComponentsBuilder, UriComponentsBuilder> uriTransformer) {
-        return uri -> uri
-            .map(UriComponentsBuilder::fromUriString)
-            .map(uriTransformer)
-            .map(builder -> builder.build().encode().toUriString());
+    private static Duration getUploadBackoff(int attempt) {
+        Duration candidate = UPLOAD_MINIMUM_BACKOFF.multipliedBy(1L << Math.min(attempt, 16));
+        return candidate.compareTo(UPLOAD_MAXIMUM_BACKOFF) < 0 ? candidate : UPLOAD_MAXIMUM_BACKOFF;
+    }
+
+    private static boolean isRetryableUpload(Throwable t) {
+        if (t instanceof AbstractCloudFoundryException) {
+            int statusCode = ((AbstractCloudFoundryException) t).getStatusCode();
+            return statusCode == HttpResponseStatus.BAD_GATEWAY.code() || statusCode == HttpResponseStatus.SERVICE_UNAVAILABLE.code() || statusCode == HttpResponseStatus.GATEWAY_TIMEOUT.code();
+        }
+
+        return Exceptions.unwrap(t) instanceof IOException;
+    }
+
+    private static boolean isUnauthorized(HttpClientResponse response) {
+        return response.status() == HttpResponseStatus.UNAUTHORIZED;
     }
 
-    private Mono<HttpClientRequest> addAuthorization(Mono<HttpClientRequest> outbound) {
-        return Mono
-            .zip(outbound, this.tokenProvider.getToken(this.connectionContext))
-            .map(function((request, token) -> request.header(AUTHORIZATION, token)));
+    private Mono<HttpClientResponse> authorized(Function<String, Mono<HttpClientResponse>> exchange) {
+        return this.tokenProvider.getToken(this.connectionContext)
+            .flatMap(token -> exchange.apply(token)
+                .flatMap(response -> {
+                    if (isUnauthorized(response)) {
+                        this.tokenProvider.invalidate(this.connectionContext, token);
+                        return authorized(exchange);
+                    } else {
+                        return Mono.just(response);
+                    }
+                }));
     }
 
     private <T> Function<Mono<HttpClientResponse>, Mono<T>> deserializedResponse(Class<T> responseType) {
         return inbound -> inbound
-            .transform(JsonCodec.decode(this.connectionContext.getObjectMapper(), responseType))
+            .transform(JsonCodec.decode(this.connectionContext.getObjectMapper(), responseType, this.connectionContext.isStreamingJsonDecoding()))
             .doOnNext(response -> NetworkLogging.RESPONSE_LOGGER.trace("       {}", response))
             .doOnError(JsonParsingException.class, e -> NetworkLogging.RESPONSE_LOGGER.error("{}\n{}", e.getCause().getMessage(), e.getPayload()));
     }
 
-    private Mono<HttpClientResponse> invalidateToken(Mono<HttpClientResponse> inbound) {
-        return inbound
-            .flatMap(response -> {
-                if (isUnauthorized(response)) {
-                    this.tokenProvider.invalidate(this.connectionContext);
-                    return inbound
-                        .transform(this::invalidateToken);
-                } else {
-                    return Mono.just(response);
-                }
-            });
+    private UriComponentsBuilder getRootBuilder(String root) {
+        ParsedRoot parsedRoot = this.parsedRoot;
+
+        if (parsedRoot == null || !parsedRoot.root.equals(root)) {
+            parsedRoot = new ParsedRoot(root, UriComponentsBuilder.fromUriString(root).build());
+            this.parsedRoot = parsedRoot;
+        }
+
+        return UriComponentsBuilder.newInstance().uriComponents(parsedRoot.components);
     }
 
     private Function<Mono<HttpClientRequest>, Publisher<Void>> serializedRequest(Object requestPayload) {
@@ -285,4 +328,27 @@ public abstract class AbstractReactorOperations {
             .transform(JsonCodec.encode(this.connectionContext.getObjectMapper(), requestPayload));
     }
 
+    private Function<Mono<String>, Mono<String>> transformUri(Function<UriComponentsBuilder, UriComponentsBuilder> uriTransformer) {
+        return uri -> uri
+            .map(this::getRootBuilder)
+            .map(uriTransformer)
+            .map(builder -> builder.build().encode().toUriString());
+    }
+
+    /**
+     * The most recently seen root and its parsed form.  Roots rarely change, so parsing once avoids re-running the URI pattern match on every request.
+     */
+    private static final class ParsedRoot {
+
+        private final UriComponents components;
+
+        private final String root;
+
+        private ParsedRoot(String root, UriComponents components) {
+            this.components = components;
+            this.root = root;
+        }
+
+    }
+
 }
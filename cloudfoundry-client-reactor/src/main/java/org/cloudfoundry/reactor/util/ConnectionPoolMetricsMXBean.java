@@ -0,0 +1,51 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.util;
+
+public interface ConnectionPoolMetricsMXBean {
+
+    /**
+     * Returns the number of connections currently acquired from the pool.
+     */
+    int getActiveConnections();
+
+    /**
+     * Returns the number of connections that have been acquired from the pool.
+     */
+    long getAcquireCount();
+
+    /**
+     * Returns the number of connections that are open but not currently acquired.
+     */
+    int getIdleConnections();
+
+    /**
+     * Returns the duration, in microseconds, of the most recent acquisition or {@code -1} if none has completed.
+     */
+    long getLastAcquireLatency();
+
+    /**
+     * Returns the mean duration, in microseconds, of acquisitions or {@code -1} if none has completed.
+     */
+    long getMeanAcquireLatency();
+
+    /**
+     * Returns the number of acquisitions waiting for a connection.
+     */
+    int getPendingAcquires();
+
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.util;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+import reactor.ipc.netty.resources.PoolResources;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A {@link PoolResources} that records metrics for each per-address {@link ChannelPool} and optionally routes specific hosts to dedicated {@link PoolResources}.
+ */
+public final class InstrumentedPoolResources implements PoolResources {
+
+    private final PoolResources defaultPoolResources;
+
+    private final Map<String, PoolResources> hostPoolResources;
+
+    private final BiConsumer<SocketAddress, ConnectionPoolMetricsMXBean> onPoolCreate;
+
+    private final ConcurrentMap<SocketAddress, ChannelPool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new instance
+     *
+     * @param defaultPoolResources the {@link PoolResources} used for hosts without a dedicated entry
+     * @param hostPoolResources    dedicated {@link PoolResources} keyed by host name
+     * @param onPoolCreate         called with the metrics of each pool as it is created
+     */
+    public InstrumentedPoolResources(PoolResources defaultPoolResources, Map<String, PoolResources> hostPoolResources, BiConsumer<SocketAddress, ConnectionPoolMetricsMXBean> onPoolCreate) {
+        this.defaultPoolResources = defaultPoolResources;
+        this.hostPoolResources = hostPoolResources;
+        this.onPoolCreate = onPoolCreate;
+    }
+
+    @Override
+    public void dispose() {
+        this.defaultPoolResources.dispose();
+        this.hostPoolResources.values().forEach(PoolResources::dispose);
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return this.defaultPoolResources.isDisposed();
+    }
+
+    @Override
+    public ChannelPool selectOrCreate(SocketAddress address, Supplier<? extends Bootstrap> bootstrap, Consumer<? super Channel> onChannelCreate, EventLoopGroup group) {
+        return this.pools.computeIfAbsent(address, a -> createPool(a, bootstrap, onChannelCreate, group));
+    }
+
+    private ChannelPool createPool(SocketAddress address, Supplier<? extends Bootstrap> bootstrap, Consumer<? super Channel> onChannelCreate, EventLoopGroup group) {
+        Metrics metrics = new Metrics();
+
+        ChannelPool delegate = getPoolResources(address).selectOrCreate(address, bootstrap, channel -> {
+            metrics.channelCreated(channel);
+
+            if (onChannelCreate != null) {
+                onChannelCreate.accept(channel);
+            }
+        }, group);
+
+        this.onPoolCreate.accept(address, metrics);
+        return new InstrumentedChannelPool(delegate, metrics);
+    }
+
+    private PoolResources getPoolResources(SocketAddress address) {
+        if (address instanceof InetSocketAddress) {
+            return this.hostPoolResources.getOrDefault(((InetSocketAddress) address).getHostString(), this.defaultPoolResources);
+        }
+
+        return this.defaultPoolResources;
+    }
+
+    private static final class InstrumentedChannelPool implements ChannelPool {
+
+        private final ChannelPool delegate;
+
+        private final Metrics metrics;
+
+        private InstrumentedChannelPool(ChannelPool delegate, Metrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Future<Channel> acquire() {
+            return instrument(System.nanoTime(), this.delegate.acquire());
+        }
+
+        @Override
+        public Future<Channel> acquire(Promise<Channel> promise) {
+            return instrument(System.nanoTime(), this.delegate.acquire(promise));
+        }
+
+        @Override
+        public void close() {
+            this.delegate.close();
+        }
+
+        @Override
+        public Future<Void> release(Channel channel) {
+            this.metrics.released();
+            return this.delegate.release(channel);
+        }
+
+        @Override
+        public Future<Void> release(Channel channel, Promise<Void> promise) {
+            this.metrics.released();
+            return this.delegate.release(channel, promise);
+        }
+
+        private Future<Channel> instrument(long start, Future<Channel> future) {
+            this.metrics.acquireStarted();
+            future.addListener((FutureListener<Channel>) f -> this.metrics.acquireCompleted(f.isSuccess(), System.nanoTime() - start));
+            return future;
+        }
+
+    }
+
+    private static final class Metrics implements ConnectionPoolMetricsMXBean {
+
+        private final LongAdder acquireCount = new LongAdder();
+
+        private final AtomicInteger active = new AtomicInteger();
+
+        private final AtomicLong lastAcquireLatency = new AtomicLong(-1);
+
+        private final AtomicInteger open = new AtomicInteger();
+
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private final LongAdder totalAcquireLatency = new LongAdder();
+
+        @Override
+        public int getActiveConnections() {
+            return this.active.get();
+        }
+
+        @Override
+        public long getAcquireCount() {
+            return this.acquireCount.sum();
+        }
+
+        @Override
+        public int getIdleConnections() {
+            return Math.max(0, this.open.get() - this.active.get());
+        }
+
+        @Override
+        public long getLastAcquireLatency() {
+            return this.lastAcquireLatency.get();
+        }
+
+        @Override
+        public long getMeanAcquireLatency() {
+            long count = this.acquireCount.sum();
+            return count == 0 ? -1 : this.totalAcquireLatency.sum() / count;
+        }
+
+        @Override
+        public int getPendingAcquires() {
+            return this.pending.get();
+        }
+
+        private void acquireCompleted(boolean success, long latencyNanos) {
+            this.pending.decrementAndGet();
+
+            if (success) {
+                long latency = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+
+                this.active.incrementAndGet();
+                this.acquireCount.increment();
+                this.lastAcquireLatency.set(latency);
+                this.totalAcquireLatency.add(latency);
+            }
+        }
+
+        private void acquireStarted() {
+            this.pending.incrementAndGet();
+        }
+
+        private void channelCreated(Channel channel) {
+            this.open.incrementAndGet();
+            channel.closeFuture().addListener(f -> this.open.decrementAndGet());
+        }
+
+        private void released() {
+            this.active.updateAndGet(active -> Math.max(0, active - 1));
+        }
+
+    }
+
+}
@@ -53,6 +53,29 @@ public final class JsonCodec {
                 }));
     }
 
+    public static <T> Function<Mono<HttpClientResponse>, Flux<T>> decode(ObjectMapper objectMapper, Class<T> responseType, boolean streaming) {
+        if (!streaming) {
+            return decode(objectMapper, responseType);
+        }
+
+        return inbound -> inbound
+            .flatMapMany(response -> {
+                JsonTokenizer tokenizer = new JsonTokenizer(objectMapper, MAX_PAYLOAD_SIZE);
+
+                return response.receive()
+                    .map(tokenizer::tokenize)
+                    .concatWith(Flux.defer(() -> Flux.just(tokenizer.endOfInput())))
+                    .flatMapIterable(Function.identity())
+                    .map(tokens -> {
+                        try {
+                            return objectMapper.readValue(tokens.asParser(objectMapper), responseType);
+                        } catch (Throwable t) {
+                            throw new JsonParsingException(t.getMessage(), t, tokens.toString());
+                        }
+                    });
+            });
+    }
+
     static Function<Mono<HttpClientRequest>, Publisher<Void>> encode(ObjectMapper objectMapper, Object requestPayload) {
         if (!AnnotationUtils.findAnnotation(requestPayload.getClass(), JsonSerialize.class).isPresent()) {
             return outbound -> outbound
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits a stream of {@link ByteBuf}s into top-level JSON values using a non-blocking Jackson parser.  Each value is captured as a {@link TokenBuffer} so that it can be bound to a type without the
+ * raw payload ever being aggregated.  A value larger than the maximum size is rejected, as the aggregating decoder does.  Instances are stateful and must only be used for a single response.
+ */
+final class JsonTokenizer {
+
+    private final ByteArrayFeeder feeder;
+
+    private final int maxValueSize;
+
+    private final JsonParser parser;
+
+    private long chunkStart;
+
+    private int depth;
+
+    private long received;
+
+    private TokenBuffer tokenBuffer;
+
+    private long valueStart;
+
+    JsonTokenizer(ObjectMapper objectMapper, int maxValueSize) {
+        try {
+            this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new JsonParsingException(e.getMessage(), e, "");
+        }
+
+        this.feeder = (ByteArrayFeeder) this.parser.getNonBlockingInputFeeder();
+        this.maxValueSize = maxValueSize;
+        this.tokenBuffer = new TokenBuffer(this.parser);
+    }
+
+    /**
+     * Signals that no more input will be received and returns any values completed by that signal
+     *
+     * @return the completed values
+     */
+    List<TokenBuffer> endOfInput() {
+        this.feeder.endOfInput();
+        return parseTokens();
+    }
+
+    /**
+     * Feeds a chunk of input to the parser and returns any values completed by that chunk.  The chunk is fully consumed before this method returns and may be released by the caller.
+     *
+     * @param byteBuf the chunk of input
+     * @return the completed values
+     */
+    List<TokenBuffer> tokenize(ByteBuf byteBuf) {
+        int length = byteBuf.readableBytes();
+        if (length == 0) {
+            return Collections.emptyList();
+        }
+
+        byte[] bytes;
+        int offset;
+
+        if (byteBuf.hasArray()) {
+            bytes = byteBuf.array();
+            offset = byteBuf.arrayOffset() + byteBuf.readerIndex();
+        } else {
+            bytes = new byte[length];
+            byteBuf.getBytes(byteBuf.readerIndex(), bytes);
+            offset = 0;
+        }
+
+        try {
+            this.feeder.feedInput(bytes, offset, offset + length);
+        } catch (IOException e) {
+            throw new JsonParsingException(e.getMessage(), e, this.tokenBuffer.toString());
+        }
+
+        this.chunkStart = this.received;
+        this.received += length;
+        List<TokenBuffer> values = parseTokens();
+
+        if (this.received - this.valueStart > this.maxValueSize) {
+            throw new JsonParsingException(String.format("JSON value exceeds maximum size of %d bytes", this.maxValueSize), null, this.tokenBuffer.toString());
+        }
+
+        return values;
+    }
+
+    private List<TokenBuffer> parseTokens() {
+        List<TokenBuffer> values = new ArrayList<>(1);
+
+        try {
+            JsonToken token;
+            while ((token = this.parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                this.tokenBuffer.copyCurrentEvent(this.parser);
+
+                if (token.isStructStart()) {
+                    this.depth++;
+                } else if (token.isStructEnd()) {
+                    this.depth--;
+                }
+
+                if (this.depth == 0) {
+                    values.add(this.tokenBuffer);
+                    this.tokenBuffer = new TokenBuffer(this.parser);
+                    this.valueStart = this.chunkStart;
+                }
+            }
+        } catch (IOException e) {
+            throw new JsonParsingException(e.getMessage(), e, this.tokenBuffer.toString());
+        }
+
+        return values;
+    }
+
+}
@@ -16,21 +16,29 @@
 
 package org.cloudfoundry.reactor.util;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.ssl.SslHandler;
 import io.netty.util.AsciiString;
+import org.cloudfoundry.util.UploadProgressMonitor;
+import org.reactivestreams.Publisher;
 import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.ipc.netty.NettyOutbound;
 import reactor.ipc.netty.http.client.HttpClientRequest;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -57,6 +65,8 @@ public final class MultipartHttpClientRequest {
 
     private static final Random RND = new Random();
 
+    private final UploadProgressMonitor monitor;
+
     private final ObjectMapper objectMapper;
 
     private final List<Consumer<PartHttpClientRequest>> partConsumers = new ArrayList<>();
@@ -64,6 +74,11 @@ public final class MultipartHttpClientRequest {
     private final HttpClientRequest request;
 
     public MultipartHttpClientRequest(ObjectMapper objectMapper, HttpClientRequest request) {
+        this(objectMapper, request, null);
+    }
+
+    public MultipartHttpClientRequest(ObjectMapper objectMapper, HttpClientRequest request, UploadProgressMonitor monitor) {
+        this.monitor = monitor;
         this.objectMapper = objectMapper;
         this.request = request;
     }
@@ -80,30 +95,54 @@ public final class MultipartHttpClientRequest {
 
         List<PartHttpClientRequest> parts = this.partConsumers.stream()
             .map(partConsumer -> {
-                PartHttpClientRequest part = new PartHttpClientRequest(this.objectMapper);
+                PartHttpClientRequest part = new PartHttpClientRequest(this.request.alloc(), this.objectMapper);
                 partConsumer.accept(part);
                 return part;
             })
             .collect(Collectors.toList());
 
-        Long contentLength = parts.stream()
-            .mapToLong(part -> delimiter.length() + CRLF.length() + part.getLength())
-            .sum() + closeDelimiter.length();
+        NettyOutbound intermediateRequest;
+        Long contentLength = null;
+
+        if (parts.stream().allMatch(PartHttpClientRequest::hasKnownLength)) {
+            contentLength = parts.stream()
+                .mapToLong(part -> delimiter.length() + CRLF.length() + part.getLength())
+                .sum() + closeDelimiter.length();
+
+            intermediateRequest = this.request
+                .chunkedTransfer(false)
+                .header(CONTENT_TYPE, BOUNDARY_PREAMBLE.concat(boundary))
+                .header(CONTENT_LENGTH, String.valueOf(contentLength));
+        } else {
+            intermediateRequest = this.request
+                .chunkedTransfer(true)
+                .header(CONTENT_TYPE, BOUNDARY_PREAMBLE.concat(boundary));
+        }
+
+        boolean secure = this.request.context().channel().pipeline().get(SslHandler.class) != null;
+        UploadProgressHandler progressHandler = this.monitor != null ? new UploadProgressHandler(this.monitor, contentLength) : null;
 
-        NettyOutbound intermediateRequest = this.request
-            .chunkedTransfer(false)
-            .header(CONTENT_TYPE, BOUNDARY_PREAMBLE.concat(boundary))
-            .header(CONTENT_LENGTH, String.valueOf(contentLength));
+        if (progressHandler != null) {
+            this.request.context().addHandlerFirst(UploadProgressHandler.NAME, progressHandler);
+        }
 
         for (PartHttpClientRequest part : parts) {
+            if (progressHandler != null) {
+                intermediateRequest = intermediateRequest.then(Mono.fromRunnable(() -> progressHandler.startPart(part.name)));
+            }
+
             intermediateRequest = intermediateRequest.sendObject(Unpooled.wrappedBuffer(delimiter.toByteArray()));
             intermediateRequest = intermediateRequest.sendObject(Unpooled.wrappedBuffer(CRLF.toByteArray()));
             intermediateRequest = intermediateRequest.sendObject(part.renderedHeaders);
-            intermediateRequest = part.sendPayload(intermediateRequest);
+            intermediateRequest = part.sendPayload(intermediateRequest, secure);
         }
 
         intermediateRequest = intermediateRequest.sendObject(Unpooled.wrappedBuffer(closeDelimiter.toByteArray()));
 
+        if (progressHandler != null) {
+            intermediateRequest = intermediateRequest.then(Mono.fromRunnable(progressHandler::complete));
+        }
+
         return intermediateRequest
             .then();
     }
@@ -126,31 +165,46 @@ public final class MultipartHttpClientRequest {
 
     public static final class PartHttpClientRequest {
 
+        private static final int FILE_CHUNK_SIZE = 64 * 1_024;
+
         private static final AsciiString HEADER_DELIMITER = new AsciiString(": ");
 
+        private final ByteBufAllocator allocator;
+
         private final HttpHeaders headers = new DefaultHttpHeaders(true);
 
         private final ObjectMapper objectMapper;
 
         private Path file;
 
-        private byte[] payload;
+        private String name = "";
 
         private ByteBuf renderedHeaders;
 
-        private PartHttpClientRequest(ObjectMapper objectMapper) {
+        private Object source;
+
+        private long sourceLength;
+
+        private Publisher<byte[]> stream;
+
+        private PartHttpClientRequest(ByteBufAllocator allocator, ObjectMapper objectMapper) {
+            this.allocator = allocator;
             this.objectMapper = objectMapper;
         }
 
         public void send(Object source) {
+            CountingOutputStream out = new CountingOutputStream();
+
             try {
-                byte[] bytes = this.objectMapper.writeValueAsBytes(source);
-                this.headers.set(CONTENT_LENGTH, bytes.length);
-                this.renderedHeaders = renderHeaders();
-                this.payload = bytes;
-            } catch (JsonProcessingException e) {
+                this.objectMapper.writeValue(out, source);
+            } catch (IOException e) {
                 throw Exceptions.propagate(e);
             }
+
+            this.headers.set(CONTENT_LENGTH, out.count);
+            this.renderedHeaders = renderHeaders();
+            this.source = source;
+            this.sourceLength = out.count;
         }
 
         public void sendFile(Path file) {
@@ -163,11 +217,18 @@ public final class MultipartHttpClientRequest {
             }
         }
 
+        public void sendStream(Publisher<byte[]> stream) {
+            this.renderedHeaders = renderHeaders();
+            this.stream = stream;
+        }
+
         public PartHttpClientRequest setContentDispositionFormData(String name) {
             return setContentDispositionFormData(name, null);
         }
 
         public PartHttpClientRequest setContentDispositionFormData(String name, String filename) {
+            this.name = name;
+
             AsciiString s = new AsciiString("form-data; name=\"").concat(name).concat("\"");
 
             if (filename != null) {
@@ -183,6 +244,51 @@ public final class MultipartHttpClientRequest {
             return this;
         }
 
+        /**
+         * Reads a file as a sequence of direct {@link ByteBuf}s of at most 64 KiB, each allocated from {@code allocator}.  Ownership of each chunk passes to the subscriber, which must release it.
+         */
+        static Flux<ByteBuf> readFile(ByteBufAllocator allocator, Path file) {
+            return Flux.using(() -> FileChannel.open(file, StandardOpenOption.READ),
+                channel -> Flux.<ByteBuf, Long>generate(() -> 0L, (position, sink) -> {
+                    try {
+                        long remaining = channel.size() - position;
+                        if (remaining <= 0) {
+                            sink.complete();
+                            return position;
+                        }
+
+                        ByteBuf chunk = allocator.directBuffer((int) Math.min(FILE_CHUNK_SIZE, remaining));
+                        int read;
+
+                        try {
+                            read = chunk.writeBytes(channel, position, chunk.writableBytes());
+                        } catch (IOException e) {
+                            chunk.release();
+                            throw e;
+                        }
+
+                        if (read < 0) {
+                            chunk.release();
+                            sink.complete();
+                            return position;
+                        }
+
+                        sink.next(chunk);
+                        return position + read;
+                    } catch (IOException e) {
+                        sink.error(e);
+                        return position;
+                    }
+                }),
+                channel -> {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        throw Exceptions.propagate(e);
+                    }
+                });
+        }
+
         private long getLength() {
             return this.renderedHeaders.readableBytes() + getPayloadLength();
         }
@@ -194,13 +300,17 @@ public final class MultipartHttpClientRequest {
                 } catch (IOException e) {
                     throw Exceptions.propagate(e);
                 }
-            } else if (this.payload != null) {
-                return this.payload.length;
+            } else if (this.source != null) {
+                return this.sourceLength;
             } else {
                 return 0;
             }
         }
 
+        private boolean hasKnownLength() {
+            return this.stream == null;
+        }
+
         private ByteBuf renderHeaders() {
             AsciiString s = this.headers.entries().stream()
                 .sorted(Comparator.comparing(Map.Entry::getKey))
@@ -212,15 +322,48 @@ public final class MultipartHttpClientRequest {
             return Unpooled.wrappedBuffer(s.toByteArray());
         }
 
-        private NettyOutbound sendPayload(NettyOutbound request) {
-            if (this.file != null) {
+        private ByteBuf renderSource() {
+            ByteBuf payload = this.allocator.buffer();
+
+            try (OutputStream out = new ByteBufOutputStream(payload)) {
+                this.objectMapper.writeValue(out, this.source);
+            } catch (IOException | RuntimeException e) {
+                payload.release();
+                throw Exceptions.propagate(e);
+            }
+
+            return payload;
+        }
+
+        private NettyOutbound sendPayload(NettyOutbound request, boolean secure) {
+            if (this.file != null && secure) {
+                return request.send(readFile(this.allocator, this.file));
+            } else if (this.file != null) {
                 return request.sendFile(this.file);
-            } else if (this.payload != null) {
-                return request.sendByteArray(Mono.just(this.payload));
+            } else if (this.source != null) {
+                return request.send(Mono.fromCallable(this::renderSource));
+            } else if (this.stream != null) {
+                return request.sendByteArray(this.stream);
             } else {
                 return request;
             }
         }
+
+        private static final class CountingOutputStream extends OutputStream {
+
+            private long count;
+
+            @Override
+            public void write(int b) {
+                this.count++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                this.count += len;
+            }
+
+        }
     }
 
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
+import io.netty.handler.stream.ChunkedInput;
+import org.cloudfoundry.util.UploadProgress;
+import org.cloudfoundry.util.UploadProgressMonitor;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Counts the bytes of a request body as they are written to the network and reports them to an {@link UploadProgressMonitor}.  Progress is reported at most every 100 milliseconds while a part is
+ * being sent, and once more when each part completes.  The report for the final part is made once the closing boundary has been written, so its bytes sent equal the content length of the request.
+ */
+final class UploadProgressHandler extends ChannelOutboundHandlerAdapter {
+
+    static final String NAME = "cloudfoundry-upload-progress";
+
+    private static final long REPORT_INTERVAL = Duration.ofMillis(100).toNanos();
+
+    private final Long contentLength;
+
+    private final UploadProgressMonitor monitor;
+
+    private final long start = System.nanoTime();
+
+    private long bytesSent;
+
+    private long lastReport = this.start;
+
+    private String part = "";
+
+    private long partStart = this.start;
+
+    private boolean started;
+
+    UploadProgressHandler(UploadProgressMonitor monitor, Long contentLength) {
+        this.contentLength = contentLength;
+        this.monitor = monitor;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        long length = getLength(msg);
+
+        if (length > 0) {
+            ChannelPromise unvoided = promise.unvoid();
+            unvoided.addListener(future -> {
+                if (future.isSuccess()) {
+                    sent(length);
+                }
+            });
+
+            ctx.write(msg, unvoided);
+        } else {
+            ctx.write(msg, promise);
+        }
+    }
+
+    synchronized void complete() {
+        report(System.nanoTime(), true);
+    }
+
+    synchronized void startPart(String part) {
+        long now = System.nanoTime();
+
+        if (this.started) {
+            report(now, true);
+        }
+
+        this.part = part;
+        this.partStart = now;
+        this.started = true;
+    }
+
+    private static long getLength(Object msg) throws Exception {
+        if (msg instanceof ByteBuf) {
+            return ((ByteBuf) msg).readableBytes();
+        } else if (msg instanceof ByteBufHolder) {
+            return ((ByteBufHolder) msg).content().readableBytes();
+        } else if (msg instanceof FileRegion) {
+            return ((FileRegion) msg).count();
+        } else if (msg instanceof ChunkedInput) {
+            return ((ChunkedInput<?>) msg).length();
+        } else {
+            return 0;
+        }
+    }
+
+    private void report(long now, boolean partComplete) {
+        this.lastReport = now;
+
+        Duration elapsed = Duration.ofNanos(now - this.start);
+        double throughput = elapsed.isZero() ? 0 : this.bytesSent / (elapsed.toNanos() / 1e9);
+
+        UploadProgress.Builder builder = UploadProgress.builder()
+            .bytesSent(this.bytesSent)
+            .contentLength(Optional.ofNullable(this.contentLength))
+            .elapsed(elapsed)
+            .part(this.part)
+            .partComplete(partComplete)
+            .partElapsed(Duration.ofNanos(now - this.partStart))
+            .throughput(throughput);
+
+        if (this.contentLength != null && throughput > 0) {
+            builder.estimatedTimeRemaining(Duration.ofNanos((long) (Math.max(0, this.contentLength - this.bytesSent) / throughput * 1e9)));
+        }
+
+        this.monitor.onProgress(builder.build());
+    }
+
+    private synchronized void sent(long length) {
+        this.bytesSent += length;
+
+        long now = System.nanoTime();
+        if (now - this.lastReport >= REPORT_INTERVAL) {
+            report(now, false);
+        }
+    }
+
+}
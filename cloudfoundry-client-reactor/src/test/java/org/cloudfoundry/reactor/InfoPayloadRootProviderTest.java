@@ -17,12 +17,15 @@
 package org.cloudfoundry.reactor;
 
 import org.junit.Test;
+import reactor.core.publisher.MonoProcessor;
 import reactor.test.StepVerifier;
 
 import java.time.Duration;
 
 import static io.netty.handler.codec.http.HttpMethod.GET;
+import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static org.assertj.core.api.Assertions.assertThat;
 
 public final class InfoPayloadRootProviderTest extends AbstractRestTest {
 
@@ -82,4 +85,60 @@ public final class InfoPayloadRootProviderTest extends AbstractRestTest {
             .verify(Duration.ofSeconds(5));
     }
 
+    @Test
+    public void getRootKeyStaleWhileRevalidate() throws InterruptedException {
+        DefaultConnectionContext connectionContext = DefaultConnectionContext.builder()
+            .apiHost("localhost")
+            .cacheDuration(Duration.ofMillis(100))
+            .maxStaleDuration(Duration.ofMinutes(1))
+            .secure(false)
+            .build();
+
+        try {
+            mockRequest(InteractionContext.builder()
+                .request(TestRequest.builder()
+                    .method(GET).path("/v2/info")
+                    .build())
+                .response(TestResponse.builder()
+                    .status(OK)
+                    .payload("fixtures/client/v2/info/GET_response.json")
+                    .build())
+                .build());
+
+            mockRequest(InteractionContext.builder()
+                .request(TestRequest.builder()
+                    .method(GET).path("/v2/info")
+                    .build())
+                .response(TestResponse.builder()
+                    .status(INTERNAL_SERVER_ERROR)
+                    .build())
+                .build());
+
+            MonoProcessor<PayloadRefreshEvent> failure = this.rootProvider.getRefreshEvents(connectionContext)
+                .filter(event -> event.getError().isPresent())
+                .next()
+                .toProcessor();
+
+            this.rootProvider
+                .getRoot("authorization_endpoint", connectionContext)
+                .as(StepVerifier::create)
+                .expectNext("http://localhost:8080/uaa")
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+            Thread.sleep(200);
+
+            this.rootProvider
+                .getRoot("authorization_endpoint", connectionContext)
+                .as(StepVerifier::create)
+                .expectNext("http://localhost:8080/uaa")
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+            assertThat(failure.block(Duration.ofSeconds(5)).isStale()).isTrue();
+        } finally {
+            connectionContext.dispose();
+        }
+    }
+
 }
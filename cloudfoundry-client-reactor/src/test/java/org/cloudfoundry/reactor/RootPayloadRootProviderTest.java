@@ -17,12 +17,15 @@
 package org.cloudfoundry.reactor;
 
 import org.junit.Test;
+import reactor.core.publisher.MonoProcessor;
 import reactor.test.StepVerifier;
 
 import java.time.Duration;
 
 import static io.netty.handler.codec.http.HttpMethod.GET;
+import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static org.assertj.core.api.Assertions.assertThat;
 
 public final class RootPayloadRootProviderTest extends AbstractRestTest {
 
@@ -78,8 +81,64 @@ public final class RootPayloadRootProviderTest extends AbstractRestTest {
         this.rootProvider
             .getRoot("invalid-key", CONNECTION_CONTEXT)
             .as(StepVerifier::create)
-            .expectError(IllegalArgumentException.class)
+            .consumeErrorWith(t -> assertThat(t).isInstanceOf(IllegalArgumentException.class).hasMessage("Root payload does not contain key 'invalid-key'"))
             .verify(Duration.ofSeconds(5));
     }
 
+    @Test
+    public void getRootKeyStaleWhileRevalidate() throws InterruptedException {
+        DefaultConnectionContext connectionContext = DefaultConnectionContext.builder()
+            .apiHost("localhost")
+            .cacheDuration(Duration.ofMillis(100))
+            .maxStaleDuration(Duration.ofMinutes(1))
+            .secure(false)
+            .build();
+
+        try {
+            mockRequest(InteractionContext.builder()
+                .request(TestRequest.builder()
+                    .method(GET).path("/")
+                    .build())
+                .response(TestResponse.builder()
+                    .status(OK)
+                    .payload("fixtures/GET_response.json")
+                    .build())
+                .build());
+
+            mockRequest(InteractionContext.builder()
+                .request(TestRequest.builder()
+                    .method(GET).path("/")
+                    .build())
+                .response(TestResponse.builder()
+                    .status(INTERNAL_SERVER_ERROR)
+                    .build())
+                .build());
+
+            MonoProcessor<PayloadRefreshEvent> failure = this.rootProvider.getRefreshEvents(connectionContext)
+                .filter(event -> event.getError().isPresent())
+                .next()
+                .toProcessor();
+
+            this.rootProvider
+                .getRoot("cloud_controller_v2", connectionContext)
+                .as(StepVerifier::create)
+                .expectNext(String.format("http://api.run.pivotal.io:%d/v2", this.mockWebServer.getPort()))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+            Thread.sleep(200);
+
+            this.rootProvider
+                .getRoot("cloud_controller_v2", connectionContext)
+                .as(StepVerifier::create)
+                .expectNext(String.format("http://api.run.pivotal.io:%d/v2", this.mockWebServer.getPort()))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+            assertThat(failure.block(Duration.ofSeconds(5)).isStale()).isTrue();
+        } finally {
+            connectionContext.dispose();
+        }
+    }
+
 }
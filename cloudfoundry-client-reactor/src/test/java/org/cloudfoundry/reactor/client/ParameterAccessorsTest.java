@@ -0,0 +1,71 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.client;
+
+import org.cloudfoundry.QueryParameter;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class ParameterAccessorsTest {
+
+    private final ParameterAccessors<QueryParameter> accessors = new ParameterAccessors<>(QueryParameter.class);
+
+    @Test
+    public void cached() {
+        assertThat(this.accessors.get(StubQueryParams.class)).isSameAs(this.accessors.get(StubQueryParams.class));
+    }
+
+    @Test
+    public void get() {
+        List<ParameterAccessors.Accessor<QueryParameter>> accessors = this.accessors.get(StubQueryParams.class);
+
+        assertThat(accessors.stream().map(accessor -> accessor.getAnnotation().value()).collect(Collectors.toList()))
+            .containsExactly("test-alpha", "test-bravo", "test-charlie");
+
+        StubQueryParams instance = new StubQueryParams();
+        assertThat(accessors.stream().map(accessor -> accessor.getValue(instance)).collect(Collectors.toList()))
+            .containsExactly("test-value-1", null, 2);
+    }
+
+    public static final class StubQueryParams {
+
+        @QueryParameter("test-alpha")
+        public String getAlpha() {
+            return "test-value-1";
+        }
+
+        @QueryParameter("test-bravo")
+        public String getBravo() {
+            return null;
+        }
+
+        @QueryParameter("test-charlie")
+        public Integer getCharlie() {
+            return 2;
+        }
+
+        public String getUnannotated() {
+            return "test-value-3";
+        }
+
+    }
+
+}
@@ -77,14 +77,20 @@ import org.cloudfoundry.reactor.TestResponse;
 import org.cloudfoundry.reactor.client.AbstractClientApiTest;
 import org.cloudfoundry.util.FluentMap;
 import org.cloudfoundry.util.OperationUtils;
+import org.cloudfoundry.util.UploadProgress;
+import org.cloudfoundry.util.UploadProgressMonitor;
 import org.junit.Test;
 import org.springframework.core.io.ClassPathResource;
 import reactor.test.StepVerifier;
+import reactor.util.context.Context;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
 
 import static io.netty.handler.codec.http.HttpMethod.DELETE;
 import static io.netty.handler.codec.http.HttpMethod.GET;
@@ -1091,4 +1097,59 @@ public final class ReactorApplicationsV2Test extends AbstractClientApiTest {
             .verify(Duration.ofSeconds(5));
     }
 
+    @Test
+    public void uploadProgress() throws IOException {
+        mockRequest(InteractionContext.builder()
+            .request(TestRequest.builder()
+                .method(PUT).path("/apps/test-application-id/bits")
+                .build())
+            .response(TestResponse.builder()
+                .status(CREATED)
+                .payload("fixtures/client/v2/apps/PUT_{id}_bits_response.json")
+                .build())
+            .build());
+
+        UploadProgressMonitor monitor = new UploadProgressMonitor();
+        List<UploadProgress> progress = new CopyOnWriteArrayList<>();
+        monitor.getProgress().subscribe(progress::add);
+
+        this.applications
+            .upload(UploadApplicationRequest.builder()
+                .application(new ClassPathResource("fixtures/client/v2/apps/test-application.zip").getFile().toPath())
+                .applicationId("test-application-id")
+                .resource(Resource.builder()
+                    .hash("b907173290db6a155949ab4dc9b2d019dea0c901")
+                    .path("path/to/content.txt")
+                    .size(123)
+                    .build())
+                .build())
+            .map(response -> response.getMetadata().getId())
+            .subscriberContext(Context.of(UploadProgressMonitor.class, monitor))
+            .as(StepVerifier::create)
+            .expectNext("eff6a47e-67a1-4e3b-99a5-4f9bcab7620a")
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+
+        List<UploadProgress> parts = progress.stream()
+            .filter(UploadProgress::isPartComplete)
+            .collect(Collectors.toList());
+
+        assertThat(parts)
+            .extracting(UploadProgress::getPart)
+            .containsExactly("resources", "application");
+
+        assertThat(parts)
+            .allSatisfy(p -> {
+                assertThat(p.getPartElapsed()).isGreaterThan(Duration.ZERO);
+                assertThat(p.getPartElapsed()).isLessThanOrEqualTo(p.getElapsed());
+                assertThat(p.getThroughput()).isPositive();
+                assertThat(p.getEstimatedTimeRemaining()).isPresent();
+            });
+
+        assertThat(parts.get(0).getBytesSent()).isLessThan(parts.get(1).getBytesSent());
+        assertThat(parts.get(0).getElapsed()).isLessThanOrEqualTo(parts.get(1).getElapsed());
+        assertThat(parts.get(1).getContentLength()).hasValue(parts.get(1).getBytesSent());
+        assertThat(parts.get(1).getEstimatedTimeRemaining()).hasValue(Duration.ZERO);
+    }
+
 }
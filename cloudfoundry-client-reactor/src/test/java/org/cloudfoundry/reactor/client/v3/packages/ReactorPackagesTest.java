@@ -48,18 +48,25 @@ import org.cloudfoundry.client.v3.packages.PackageState;
 import org.cloudfoundry.client.v3.packages.PackageType;
 import org.cloudfoundry.client.v3.packages.UploadPackageRequest;
 import org.cloudfoundry.client.v3.packages.UploadPackageResponse;
+import org.cloudfoundry.reactor.ConnectionContext;
+import org.cloudfoundry.reactor.DefaultConnectionContext;
 import org.cloudfoundry.reactor.InteractionContext;
 import org.cloudfoundry.reactor.TestRequest;
 import org.cloudfoundry.reactor.TestResponse;
 import org.cloudfoundry.reactor.client.AbstractClientApiTest;
 import org.cloudfoundry.util.OperationUtils;
+import org.cloudfoundry.util.UploadProgress;
+import org.cloudfoundry.util.UploadProgressMonitor;
 import org.junit.Test;
 import org.springframework.core.io.ClassPathResource;
 import reactor.test.StepVerifier;
+import reactor.util.context.Context;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static io.netty.handler.codec.http.HttpMethod.DELETE;
 import static io.netty.handler.codec.http.HttpMethod.GET;
@@ -67,6 +74,7 @@ import static io.netty.handler.codec.http.HttpMethod.POST;
 import static io.netty.handler.codec.http.HttpResponseStatus.ACCEPTED;
 import static io.netty.handler.codec.http.HttpResponseStatus.CREATED;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpResponseStatus.SERVICE_UNAVAILABLE;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.cloudfoundry.util.tuple.TupleUtils.consumer;
 
@@ -523,4 +531,83 @@ public final class ReactorPackagesTest extends AbstractClientApiTest {
             .verify(Duration.ofSeconds(5));
     }
 
+    @Test
+    public void uploadProgress() throws IOException {
+        mockRequest(InteractionContext.builder()
+            .request(TestRequest.builder()
+                .method(POST).path("/packages/test-package-id/upload")
+                .build())
+            .response(TestResponse.builder()
+                .status(CREATED)
+                .payload("fixtures/client/v3/packages/POST_{id}_upload_response.json")
+                .build())
+            .build());
+
+        UploadProgressMonitor monitor = new UploadProgressMonitor();
+        List<UploadProgress> progress = new CopyOnWriteArrayList<>();
+        monitor.getProgress().subscribe(progress::add);
+
+        this.packages
+            .upload(UploadPackageRequest.builder()
+                .bits(new ClassPathResource("fixtures/client/v3/packages/test-package.zip").getFile().toPath())
+                .packageId("test-package-id")
+                .build())
+            .map(UploadPackageResponse::getId)
+            .subscriberContext(Context.of(UploadProgressMonitor.class, monitor))
+            .as(StepVerifier::create)
+            .expectNext("44f7c078-0934-470f-9883-4fcddc5b8f13")
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(progress)
+            .filteredOn(UploadProgress::isPartComplete)
+            .hasSize(1)
+            .allSatisfy(p -> {
+                assertThat(p.getPart()).isEqualTo("bits");
+                assertThat(p.getContentLength()).hasValue(p.getBytesSent());
+                assertThat(p.getEstimatedTimeRemaining()).hasValue(Duration.ZERO);
+                assertThat(p.getPartElapsed()).isLessThanOrEqualTo(p.getElapsed());
+                assertThat(p.getThroughput()).isPositive();
+            });
+    }
+
+    @Test
+    public void uploadRetry() throws IOException {
+        mockRequest(InteractionContext.builder()
+            .request(TestRequest.builder()
+                .method(POST).path("/packages/test-package-id/upload")
+                .build())
+            .response(TestResponse.builder()
+                .status(SERVICE_UNAVAILABLE)
+                .build())
+            .build());
+
+        mockRequest(InteractionContext.builder()
+            .request(TestRequest.builder()
+                .method(POST).path("/packages/test-package-id/upload")
+                .build())
+            .response(TestResponse.builder()
+                .status(CREATED)
+                .payload("fixtures/client/v3/packages/POST_{id}_upload_response.json")
+                .build())
+            .build());
+
+        ConnectionContext connectionContext = DefaultConnectionContext.builder()
+            .apiHost("localhost")
+            .secure(false)
+            .uploadRetries(1)
+            .build();
+
+        new ReactorPackages(connectionContext, this.root, TOKEN_PROVIDER)
+            .upload(UploadPackageRequest.builder()
+                .bits(new ClassPathResource("fixtures/client/v3/packages/test-package.zip").getFile().toPath())
+                .packageId("test-package-id")
+                .build())
+            .map(UploadPackageResponse::getId)
+            .as(StepVerifier::create)
+            .expectNext("44f7c078-0934-470f-9883-4fcddc5b8f13")
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+    }
+
 }
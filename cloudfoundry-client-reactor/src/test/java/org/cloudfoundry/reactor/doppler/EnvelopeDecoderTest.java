@@ -0,0 +1,180 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.doppler;
+
+import io.netty.buffer.ByteBuf;
+import com.squareup.wire.FieldEncoding;
+import com.squareup.wire.ProtoAdapter;
+import com.squareup.wire.ProtoWriter;
+import io.netty.buffer.Unpooled;
+import okio.Buffer;
+import okio.ByteString;
+import org.cloudfoundry.doppler.Envelope;
+import org.cloudfoundry.doppler.EventType;
+import org.cloudfoundry.doppler.LogMessage;
+import org.cloudfoundry.doppler.MessageType;
+import org.cloudfoundry.doppler.ValueMetric;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public final class EnvelopeDecoderTest {
+
+    @Test
+    public void logMessage() {
+        ByteBuf byteBuf = Unpooled.wrappedBuffer(org.cloudfoundry.dropsonde.events.Envelope.ADAPTER.encode(new org.cloudfoundry.dropsonde.events.Envelope.Builder()
+            .deployment("test-deployment")
+            .eventType(org.cloudfoundry.dropsonde.events.Envelope.EventType.LogMessage)
+            .index("test-index")
+            .ip("test-ip")
+            .job("test-job")
+            .logMessage(new org.cloudfoundry.dropsonde.events.LogMessage.Builder()
+                .app_id("test-application-id")
+                .message(ByteString.encodeUtf8("test-message ☃"))
+                .message_type(org.cloudfoundry.dropsonde.events.LogMessage.MessageType.ERR)
+                .source_instance("test-source-instance")
+                .source_type("test-source-type")
+                .timestamp(1_000_000_000L)
+                .build())
+            .origin("test-origin")
+            .tags(Collections.singletonMap("test-key", "test-value"))
+            .timestamp(2_000_000_000L)
+            .build()));
+
+        assertThat(EnvelopeDecoder.decode(byteBuf)).isEqualTo(Envelope.builder()
+            .deployment("test-deployment")
+            .eventType(EventType.LOG_MESSAGE)
+            .index("test-index")
+            .ip("test-ip")
+            .job("test-job")
+            .logMessage(LogMessage.builder()
+                .applicationId("test-application-id")
+                .message("test-message ☃")
+                .messageType(MessageType.ERR)
+                .sourceInstance("test-source-instance")
+                .sourceType("test-source-type")
+                .timestamp(1_000_000_000L)
+                .build())
+            .origin("test-origin")
+            .tag("test-key", "test-value")
+            .timestamp(2_000_000_000L)
+            .build());
+        assertThat(byteBuf.readerIndex()).isZero();
+    }
+
+    @Test
+    public void logMessageEmptyTagValue() throws IOException {
+        Buffer buffer = new Buffer().write(org.cloudfoundry.dropsonde.events.Envelope.ADAPTER.encode(logMessageEnvelope()));
+        ProtoWriter writer = new ProtoWriter(buffer);
+        writer.writeTag(17, FieldEncoding.LENGTH_DELIMITED);
+        writer.writeVarint32(ProtoAdapter.STRING.encodedSizeWithTag(1, "test-key"));
+        ProtoAdapter.STRING.encodeWithTag(writer, 1, "test-key");
+
+        assertThat(EnvelopeDecoder.decode(Unpooled.wrappedBuffer(buffer.readByteArray()))).isEqualTo(logMessage()
+            .tag("test-key", "")
+            .build());
+    }
+
+    @Test
+    public void logMessageUnknownFields() throws IOException {
+        Buffer buffer = new Buffer().write(org.cloudfoundry.dropsonde.events.Envelope.ADAPTER.encode(logMessageEnvelope()));
+        ProtoWriter writer = new ProtoWriter(buffer);
+        writer.writeTag(100, FieldEncoding.VARINT);
+        writer.writeVarint64(Long.MAX_VALUE);
+        writer.writeTag(101, FieldEncoding.FIXED64);
+        writer.writeFixed64(Long.MAX_VALUE);
+        ProtoAdapter.STRING.encodeWithTag(writer, 102, "test-unknown");
+        writer.writeTag(103, FieldEncoding.FIXED32);
+        writer.writeFixed32(Integer.MAX_VALUE);
+
+        assertThat(EnvelopeDecoder.decode(Unpooled.wrappedBuffer(buffer.readByteArray()))).isEqualTo(logMessage()
+            .build());
+    }
+
+    @Test
+    public void malformed() {
+        byte[] bytes = new byte[10];
+        Arrays.fill(bytes, (byte) 0xFF);
+
+        assertThatThrownBy(() -> EnvelopeDecoder.decode(Unpooled.wrappedBuffer(bytes)))
+            .hasCauseInstanceOf(ProtocolException.class);
+    }
+
+    @Test
+    public void truncated() {
+        byte[] bytes = org.cloudfoundry.dropsonde.events.Envelope.ADAPTER.encode(logMessageEnvelope().newBuilder()
+            .tags(Collections.singletonMap("test-key", "test-value"))
+            .build());
+
+        assertThatThrownBy(() -> EnvelopeDecoder.decode(Unpooled.wrappedBuffer(bytes, 0, bytes.length - 5)))
+            .hasCauseInstanceOf(EOFException.class);
+    }
+
+    @Test
+    public void valueMetric() {
+        ByteBuf byteBuf = Unpooled.wrappedBuffer(org.cloudfoundry.dropsonde.events.Envelope.ADAPTER.encode(new org.cloudfoundry.dropsonde.events.Envelope.Builder()
+            .eventType(org.cloudfoundry.dropsonde.events.Envelope.EventType.ValueMetric)
+            .origin("test-origin")
+            .valueMetric(new org.cloudfoundry.dropsonde.events.ValueMetric.Builder()
+                .name("test-name")
+                .unit("test-unit")
+                .value(1.5)
+                .build())
+            .build()));
+
+        assertThat(EnvelopeDecoder.decode(byteBuf)).isEqualTo(Envelope.builder()
+            .eventType(EventType.VALUE_METRIC)
+            .origin("test-origin")
+            .valueMetric(ValueMetric.builder()
+                .name("test-name")
+                .unit("test-unit")
+                .value(1.5)
+                .build())
+            .build());
+    }
+
+    private static Envelope.Builder logMessage() {
+        return Envelope.builder()
+            .eventType(EventType.LOG_MESSAGE)
+            .logMessage(LogMessage.builder()
+                .message("test-message")
+                .messageType(MessageType.OUT)
+                .timestamp(1_000_000_000L)
+                .build())
+            .origin("test-origin");
+    }
+
+    private static org.cloudfoundry.dropsonde.events.Envelope logMessageEnvelope() {
+        return new org.cloudfoundry.dropsonde.events.Envelope.Builder()
+            .eventType(org.cloudfoundry.dropsonde.events.Envelope.EventType.LogMessage)
+            .logMessage(new org.cloudfoundry.dropsonde.events.LogMessage.Builder()
+                .message(ByteString.encodeUtf8("test-message"))
+                .message_type(org.cloudfoundry.dropsonde.events.LogMessage.MessageType.OUT)
+                .timestamp(1_000_000_000L)
+                .build())
+            .origin("test-origin")
+            .build();
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.doppler;
+
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.ByteString;
+import org.cloudfoundry.doppler.Envelope;
+import org.cloudfoundry.doppler.FirehoseRequest;
+import org.junit.After;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class ReactorDopplerFirehoseTest extends AbstractDopplerApiTest {
+
+    private final MockWebServer firehoseServer = new MockWebServer();
+
+    private final ReactorDopplerEndpoints dopplerEndpoints = new ReactorDopplerEndpoints(CONNECTION_CONTEXT, Mono.just(this.firehoseServer.url("/").uri().toString()), TOKEN_PROVIDER);
+
+    @After
+    public void shutdownFirehose() throws IOException {
+        this.firehoseServer.shutdown();
+    }
+
+    @Test
+    public void sharded() {
+        AtomicInteger connections = new AtomicInteger();
+        this.firehoseServer.setDispatcher(new FirehoseDispatcher(connections, 2, connection -> false));
+
+        DopplerMetrics metrics = new DopplerMetrics();
+
+        this.dopplerEndpoints
+            .firehose(FirehoseRequest.builder()
+                .shards(2)
+                .subscriptionId("test-subscription-id")
+                .build())
+            .map(Envelope::getOrigin)
+            .subscriberContext(Context.of(DopplerMetrics.class, metrics))
+            .as(StepVerifier::create)
+            .recordWith(ArrayList::new)
+            .expectNextCount(4)
+            .consumeRecordedWith(origins -> assertThat(origins).containsOnly("test-origin-0", "test-origin-1"))
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(connections).hasValue(2);
+        assertThat(metrics.getShards()).hasSize(2);
+        assertThat(metrics.getShards()).allSatisfy(shard -> {
+            assertThat(shard.getDroppedCount()).isZero();
+            assertThat(shard.getReceivedCount()).isEqualTo(2);
+            assertThat(shard.getReconnectCount()).isZero();
+        });
+    }
+
+    @Test
+    public void shardedBackpressure() {
+        this.firehoseServer.setDispatcher(new FirehoseDispatcher(new AtomicInteger(), 600, connection -> false));
+
+        DopplerMetrics metrics = new DopplerMetrics();
+
+        this.dopplerEndpoints
+            .firehose(FirehoseRequest.builder()
+                .shards(1)
+                .subscriptionId("test-subscription-id")
+                .build())
+            .subscriberContext(Context.of(DopplerMetrics.class, metrics))
+            .as(envelopes -> StepVerifier.create(envelopes, 0))
+            .thenAwait(Duration.ofMillis(500))
+            .thenRequest(600)
+            .expectNextCount(600)
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(metrics.getShards().get(0).getDroppedCount()).isZero();
+        assertThat(metrics.getShards().get(0).getReceivedCount()).isEqualTo(600);
+    }
+
+    @Test
+    public void shardedReconnect() {
+        AtomicInteger connections = new AtomicInteger();
+        this.firehoseServer.setDispatcher(new FirehoseDispatcher(connections, 2, connection -> connection == 0));
+
+        DopplerMetrics metrics = new DopplerMetrics();
+
+        this.dopplerEndpoints
+            .firehose(FirehoseRequest.builder()
+                .shards(2)
+                .subscriptionId("test-subscription-id")
+                .build())
+            .map(Envelope::getOrigin)
+            .subscriberContext(Context.of(DopplerMetrics.class, metrics))
+            .as(StepVerifier::create)
+            .recordWith(ArrayList::new)
+            .expectNextCount(6)
+            .consumeRecordedWith(origins -> assertThat(origins).containsOnly("test-origin-0", "test-origin-1", "test-origin-2"))
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(connections).hasValue(3);
+        assertThat(metrics.getShards())
+            .extracting(DopplerShardMetrics::getReconnectCount)
+            .containsExactlyInAnyOrder(0L, 1L);
+        assertThat(metrics.getShards()).allSatisfy(shard ->
+            assertThat(shard.getReceivedCount()).isEqualTo(shard.getReconnectCount() == 0 ? 2 : 4));
+    }
+
+    @Test
+    public void singleShardReconnect() {
+        AtomicInteger connections = new AtomicInteger();
+        this.firehoseServer.setDispatcher(new FirehoseDispatcher(connections, 2, connection -> connection == 0));
+
+        DopplerMetrics metrics = new DopplerMetrics();
+
+        this.dopplerEndpoints
+            .firehose(FirehoseRequest.builder()
+                .shards(1)
+                .subscriptionId("test-subscription-id")
+                .build())
+            .map(Envelope::getOrigin)
+            .subscriberContext(Context.of(DopplerMetrics.class, metrics))
+            .as(StepVerifier::create)
+            .expectNext("test-origin-0", "test-origin-0", "test-origin-1", "test-origin-1")
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(connections).hasValue(2);
+        assertThat(metrics.getShards()).hasSize(1);
+        assertThat(metrics.getShards().get(0).getReconnectCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void unsharded() {
+        AtomicInteger connections = new AtomicInteger();
+        this.firehoseServer.setDispatcher(new FirehoseDispatcher(connections, 2, connection -> true));
+
+        this.dopplerEndpoints
+            .firehose(FirehoseRequest.builder()
+                .subscriptionId("test-subscription-id")
+                .build())
+            .map(Envelope::getOrigin)
+            .as(StepVerifier::create)
+            .expectNext("test-origin-0", "test-origin-0")
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(connections).hasValue(1);
+    }
+
+    @Test
+    public void unshardedResubscribe() {
+        AtomicInteger connections = new AtomicInteger();
+        this.firehoseServer.setDispatcher(new FirehoseDispatcher(connections, 2, connection -> true));
+
+        DopplerMetrics metrics = new DopplerMetrics();
+
+        this.dopplerEndpoints
+            .firehose(FirehoseRequest.builder()
+                .subscriptionId("test-subscription-id")
+                .build())
+            .map(Envelope::getOrigin)
+            .repeat(1)
+            .subscriberContext(Context.of(DopplerMetrics.class, metrics))
+            .as(StepVerifier::create)
+            .expectNext("test-origin-0", "test-origin-0", "test-origin-1", "test-origin-1")
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(connections).hasValue(2);
+        assertThat(metrics.getShards()).hasSize(1);
+        assertThat(metrics.getShards().get(0).getReceivedCount()).isEqualTo(4);
+        assertThat(metrics.getShards().get(0).getReconnectCount()).isEqualTo(1);
+    }
+
+    private static final class FirehoseDispatcher extends Dispatcher {
+
+        private final IntPredicate close;
+
+        private final AtomicInteger connections;
+
+        private final int count;
+
+        private FirehoseDispatcher(AtomicInteger connections, int count, IntPredicate close) {
+            this.close = close;
+            this.connections = connections;
+            this.count = count;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            assertThat(request.getPath()).isEqualTo("/firehose/test-subscription-id");
+            int connection = this.connections.getAndIncrement();
+            String origin = String.format("test-origin-%d", connection);
+
+            return new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+
+                @Override
+                public void onOpen(WebSocket webSocket, Response response) {
+                    for (int i = 0; i < FirehoseDispatcher.this.count; i++) {
+                        webSocket.send(ByteString.of(org.cloudfoundry.dropsonde.events.Envelope.ADAPTER.encode(new org.cloudfoundry.dropsonde.events.Envelope.Builder()
+                            .eventType(org.cloudfoundry.dropsonde.events.Envelope.EventType.ValueMetric)
+                            .origin(origin)
+                            .timestamp(System.currentTimeMillis() * 1_000_000L)
+                            .valueMetric(new org.cloudfoundry.dropsonde.events.ValueMetric.Builder()
+                                .name("test-name")
+                                .unit("test-unit")
+                                .value(1.0)
+                                .build())
+                            .build())));
+                    }
+
+                    if (FirehoseDispatcher.this.close.test(connection)) {
+                        webSocket.close(1000, "test-close");
+                    }
+                }
+
+            });
+        }
+
+    }
+
+}
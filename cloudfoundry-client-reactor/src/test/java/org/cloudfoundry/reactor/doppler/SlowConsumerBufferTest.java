@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.doppler;
+
+import org.cloudfoundry.doppler.CounterEvent;
+import org.cloudfoundry.doppler.Envelope;
+import org.cloudfoundry.doppler.EventType;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class SlowConsumerBufferTest {
+
+    private final DopplerShardMetrics metrics = new DopplerShardMetrics(0);
+
+    @Test
+    public void dropNewest() {
+        buffer(OverflowStrategy.DROP_NEWEST, 10)
+            .as(flux -> StepVerifier.create(flux, 0))
+            .thenRequest(Long.MAX_VALUE)
+            .expectNext("test-origin-0", "test-origin-1")
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(this.metrics.getDroppedCount()).isEqualTo(8);
+    }
+
+    @Test
+    public void dropOldest() {
+        buffer(OverflowStrategy.DROP_OLDEST, 10)
+            .as(flux -> StepVerifier.create(flux, 0))
+            .thenRequest(Long.MAX_VALUE)
+            .expectNext("test-origin-8", "test-origin-9")
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(this.metrics.getDroppedCount()).isEqualTo(8);
+    }
+
+    @Test
+    public void sample() {
+        buffer(OverflowStrategy.SAMPLE, 10)
+            .as(flux -> StepVerifier.create(flux, 0))
+            .thenRequest(Long.MAX_VALUE)
+            .expectNext("test-origin-2", "test-origin-6")
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(this.metrics.getDroppedCount()).isEqualTo(8);
+    }
+
+    @Test
+    public void slowConsumerAlert() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Envelope> alerts = new CopyOnWriteArrayList<>();
+        Envelope alert = alert();
+
+        SlowConsumerBuffer.buffer(Flux.just(envelope(0), alert), SlowConsumerPolicy.builder()
+            .slowConsumerAlertHandler(envelope -> {
+                alerts.add(envelope);
+                latch.countDown();
+            })
+            .build(), this.metrics)
+            .as(StepVerifier::create)
+            .expectNextCount(2)
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(alerts).containsExactly(alert);
+        assertThat(this.metrics.getDroppedCount()).isZero();
+    }
+
+    @Test
+    public void slowConsumerAlertError() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+
+        SlowConsumerBuffer.buffer(Flux.just(alert(), envelope(0)), SlowConsumerPolicy.builder()
+            .slowConsumerAlertHandler(envelope -> {
+                latch.countDown();
+                throw new IllegalStateException("test-handler-error");
+            })
+            .build(), this.metrics)
+            .map(Envelope::getOrigin)
+            .as(StepVerifier::create)
+            .expectNext("doppler", "test-origin-0")
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static Envelope alert() {
+        return Envelope.builder()
+            .counterEvent(CounterEvent.builder()
+                .delta(1L)
+                .name("TruncatingBuffer.DroppedMessages")
+                .build())
+            .eventType(EventType.COUNTER_EVENT)
+            .origin("doppler")
+            .build();
+    }
+
+    private static Envelope envelope(int i) {
+        return Envelope.builder()
+            .eventType(EventType.LOG_MESSAGE)
+            .origin(String.format("test-origin-%d", i))
+            .build();
+    }
+
+    private Flux<String> buffer(OverflowStrategy strategy, int count) {
+        return SlowConsumerBuffer.buffer(Flux.range(0, count).map(SlowConsumerBufferTest::envelope), SlowConsumerPolicy.builder()
+            .bufferSize(2)
+            .overflowStrategy(strategy)
+            .sampleRate(4)
+            .build(), this.metrics)
+            .map(Envelope::getOrigin);
+    }
+
+}
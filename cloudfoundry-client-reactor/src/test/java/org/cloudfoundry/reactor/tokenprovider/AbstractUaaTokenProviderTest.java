@@ -0,0 +1,291 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.tokenprovider;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.cloudfoundry.reactor.ConnectionContext;
+import org.cloudfoundry.reactor.DefaultConnectionContext;
+import org.cloudfoundry.reactor.SingleEndpointRootProvider;
+import org.cloudfoundry.reactor.TokenProvider;
+import org.cloudfoundry.reactor.util.AbstractReactorOperations;
+import org.junit.After;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class AbstractUaaTokenProviderTest {
+
+    private static final int CONCURRENT_REQUESTS = 500;
+
+    private final MockWebServer mockWebServer = new MockWebServer();
+
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+
+    private final DefaultConnectionContext connectionContext;
+
+    private final TokenProvider tokenProvider = ClientCredentialsGrantTokenProvider.builder()
+        .clientId("test-client-id")
+        .clientSecret("test-client-secret")
+        .build();
+
+    private volatile boolean failRefresh;
+
+    private volatile boolean jwt;
+
+    public AbstractUaaTokenProviderTest() throws IOException {
+        this.mockWebServer.setDispatcher(new TokenDispatcher());
+        this.mockWebServer.start();
+
+        this.connectionContext = DefaultConnectionContext.builder()
+            .apiHost("localhost")
+            .port(this.mockWebServer.getPort())
+            .secure(false)
+            .rootProvider(SingleEndpointRootProvider.builder()
+                .apiHost("localhost")
+                .port(this.mockWebServer.getPort())
+                .secure(false)
+                .build())
+            .build();
+    }
+
+    @Test
+    public void concurrentInvalidationsNegotiateOnce() {
+        this.tokenProvider.getToken(this.connectionContext)
+            .as(StepVerifier::create)
+            .expectNext("bearer test-access-token-1")
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+
+        TestOperations operations = new TestOperations(this.connectionContext, this.connectionContext.getRootProvider().getRoot(this.connectionContext), this.tokenProvider);
+
+        Flux.range(0, CONCURRENT_REQUESTS)
+            .flatMap(i -> operations.get(), CONCURRENT_REQUESTS)
+            .as(StepVerifier::create)
+            .expectNextCount(CONCURRENT_REQUESTS)
+            .expectComplete()
+            .verify(Duration.ofSeconds(30));
+
+        assertThat(this.tokenRequests.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void proactiveRefresh() throws InterruptedException {
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        scheduler.advanceTimeTo(Instant.now());
+        this.jwt = true;
+        ClientCredentialsGrantTokenProvider tokenProvider = refreshingTokenProvider();
+
+        String first = tokenProvider.getToken(this.connectionContext).block(Duration.ofSeconds(5));
+
+        scheduler.advanceTimeBy(Duration.ofSeconds(49));
+        assertThat(this.tokenRequests).hasValue(1);
+
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+        await(() -> tokenProvider.getRefreshMetrics().getRefreshCount() == 1);
+
+        assertThat(this.tokenRequests).hasValue(2);
+        assertThat(tokenProvider.getToken(this.connectionContext).block(Duration.ofSeconds(5))).isNotEqualTo(first);
+        assertThat(tokenProvider.getRefreshMetrics().getRefreshedBeforeExpirationCount()).isEqualTo(1);
+        assertThat(tokenProvider.getRefreshMetrics().getRefreshFailureCount()).isZero();
+        assertThat(tokenProvider.getRefreshMetrics().getLastRefreshLatency()).isZero();
+
+        tokenProvider.dispose();
+    }
+
+    @Test
+    public void proactiveRefreshCacheDuration() throws InterruptedException {
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        scheduler.advanceTimeTo(Instant.now());
+        this.jwt = true;
+        ClientCredentialsGrantTokenProvider tokenProvider = refreshingTokenProvider();
+
+        DefaultConnectionContext connectionContext = DefaultConnectionContext.builder()
+            .apiHost("localhost")
+            .cacheDuration(Duration.ofSeconds(10))
+            .port(this.mockWebServer.getPort())
+            .secure(false)
+            .rootProvider(SingleEndpointRootProvider.builder()
+                .apiHost("localhost")
+                .port(this.mockWebServer.getPort())
+                .secure(false)
+                .build())
+            .build();
+
+        try {
+            tokenProvider.getToken(connectionContext).block(Duration.ofSeconds(5));
+
+            scheduler.advanceTimeBy(Duration.ofSeconds(20));
+            tokenProvider.getToken(connectionContext).block(Duration.ofSeconds(5));
+            assertThat(this.tokenRequests).hasValue(2);
+
+            scheduler.advanceTimeBy(Duration.ofSeconds(40));
+            Thread.sleep(100);
+            assertThat(this.tokenRequests).hasValue(2);
+
+            scheduler.advanceTimeBy(Duration.ofSeconds(10));
+            await(() -> tokenProvider.getRefreshMetrics().getRefreshCount() == 1);
+            assertThat(this.tokenRequests).hasValue(3);
+        } finally {
+            tokenProvider.dispose();
+            connectionContext.dispose();
+        }
+    }
+
+    @Test
+    public void proactiveRefreshFailure() throws InterruptedException {
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        scheduler.advanceTimeTo(Instant.now());
+        this.failRefresh = true;
+        this.jwt = true;
+        ClientCredentialsGrantTokenProvider tokenProvider = refreshingTokenProvider();
+
+        String first = tokenProvider.getToken(this.connectionContext).block(Duration.ofSeconds(5));
+
+        scheduler.advanceTimeBy(Duration.ofSeconds(50));
+        await(() -> tokenProvider.getRefreshMetrics().getRefreshFailureCount() == 1);
+
+        assertThat(tokenProvider.getToken(this.connectionContext).block(Duration.ofSeconds(5))).isEqualTo(first);
+        assertThat(tokenProvider.getRefreshMetrics().getRefreshCount()).isZero();
+        assertThat(tokenProvider.getRefreshMetrics().getRefreshedBeforeExpirationCount()).isZero();
+
+        tokenProvider.dispose();
+    }
+
+    @Test
+    public void proactiveRefreshInvalidated() throws InterruptedException {
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        scheduler.advanceTimeTo(Instant.now());
+        this.jwt = true;
+        ClientCredentialsGrantTokenProvider tokenProvider = refreshingTokenProvider();
+
+        tokenProvider.getToken(this.connectionContext).block(Duration.ofSeconds(5));
+        tokenProvider.invalidate(this.connectionContext);
+
+        scheduler.advanceTimeBy(Duration.ofSeconds(60));
+        Thread.sleep(100);
+
+        assertThat(this.tokenRequests).hasValue(1);
+        assertThat(tokenProvider.getRefreshMetrics().getRefreshCount()).isZero();
+        assertThat(tokenProvider.getRefreshMetrics().getRefreshFailureCount()).isZero();
+
+        tokenProvider.dispose();
+    }
+
+    @After
+    public void shutdown() throws IOException {
+        VirtualTimeScheduler.reset();
+        this.connectionContext.dispose();
+        this.mockWebServer.shutdown();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within 5 seconds");
+            }
+
+            Thread.sleep(10);
+        }
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ClientCredentialsGrantTokenProvider refreshingTokenProvider() {
+        return ClientCredentialsGrantTokenProvider.builder()
+            .clientId("test-client-id")
+            .clientSecret("test-client-secret")
+            .proactiveRefreshRatio(0.5)
+            .build();
+    }
+
+    private static final class TestOperations extends AbstractReactorOperations {
+
+        private TestOperations(ConnectionContext connectionContext, Mono<String> root, TokenProvider tokenProvider) {
+            super(connectionContext, root, tokenProvider);
+        }
+
+        @SuppressWarnings("rawtypes")
+        private Mono<Map> get() {
+            return doGet(Map.class,
+                builder -> builder.pathSegment("test"),
+                outbound -> outbound,
+                inbound -> inbound);
+        }
+
+    }
+
+    private final class TokenDispatcher extends Dispatcher {
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            if ("/oauth/token".equals(request.getPath())) {
+                int generation = AbstractUaaTokenProviderTest.this.tokenRequests.incrementAndGet();
+
+                if (AbstractUaaTokenProviderTest.this.failRefresh && generation > 1) {
+                    return new MockResponse()
+                        .setResponseCode(500);
+                }
+
+                if (AbstractUaaTokenProviderTest.this.jwt) {
+                    long now = VirtualTimeScheduler.get().now(TimeUnit.SECONDS);
+                    String accessToken = String.format("%s.%s.", encode("{\"alg\":\"none\"}"),
+                        encode(String.format("{\"exp\":%d,\"iat\":%d,\"jti\":\"test-access-token-%d\"}", now + 100, now, generation)));
+
+                    return new MockResponse()
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(String.format("{\"access_token\":\"%s\",\"token_type\":\"bearer\"}", accessToken));
+                }
+
+                return new MockResponse()
+                    .setHeader("Content-Type", "application/json")
+                    .setBody(String.format("{\"access_token\":\"test-access-token-%d\",\"token_type\":\"bearer\"}", generation));
+            }
+
+            if ("bearer test-access-token-1".equals(request.getHeader("Authorization"))) {
+                return new MockResponse()
+                    .setResponseCode(401);
+            }
+
+            return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{}");
+        }
+
+    }
+
+}
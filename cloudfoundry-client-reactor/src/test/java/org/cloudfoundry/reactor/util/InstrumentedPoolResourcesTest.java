@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.util;
+
+import io.netty.channel.Channel;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+import org.junit.Test;
+import reactor.ipc.netty.resources.PoolResources;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public final class InstrumentedPoolResourcesTest {
+
+    private final Channel channel = mock(Channel.class);
+
+    private final ChannelPool channelPool = mock(ChannelPool.class);
+
+    private final PoolResources defaultPoolResources = mock(PoolResources.class);
+
+    private final PoolResources hostPoolResources = mock(PoolResources.class);
+
+    private final AtomicReference<ConnectionPoolMetricsMXBean> metrics = new AtomicReference<>();
+
+    private final InstrumentedPoolResources poolResources = new InstrumentedPoolResources(this.defaultPoolResources,
+        Collections.singletonMap("test-uaa-host", this.hostPoolResources), (address, poolMetrics) -> this.metrics.set(poolMetrics));
+
+    @Test
+    public void metrics() {
+        Promise<Channel> promise = ImmediateEventExecutor.INSTANCE.newPromise();
+        when(this.defaultPoolResources.selectOrCreate(any(), any(), any(), any())).thenReturn(this.channelPool);
+        when(this.channelPool.acquire()).thenReturn(promise);
+
+        ChannelPool pool = this.poolResources.selectOrCreate(InetSocketAddress.createUnresolved("test-api-host", 443), null, null, null);
+        pool.acquire();
+
+        assertThat(this.metrics.get().getPendingAcquires()).isEqualTo(1);
+        assertThat(this.metrics.get().getActiveConnections()).isEqualTo(0);
+
+        promise.setSuccess(this.channel);
+
+        assertThat(this.metrics.get().getPendingAcquires()).isEqualTo(0);
+        assertThat(this.metrics.get().getActiveConnections()).isEqualTo(1);
+        assertThat(this.metrics.get().getAcquireCount()).isEqualTo(1);
+        assertThat(this.metrics.get().getLastAcquireLatency()).isGreaterThanOrEqualTo(0);
+
+        pool.release(this.channel);
+
+        assertThat(this.metrics.get().getActiveConnections()).isEqualTo(0);
+        verify(this.channelPool).release(this.channel);
+    }
+
+    @Test
+    public void selectHostPool() {
+        when(this.hostPoolResources.selectOrCreate(any(), any(), any(), any())).thenReturn(this.channelPool);
+
+        InetSocketAddress address = InetSocketAddress.createUnresolved("test-uaa-host", 443);
+
+        assertThat(this.poolResources.selectOrCreate(address, null, null, null))
+            .isSameAs(this.poolResources.selectOrCreate(address, null, null, null));
+        verify(this.defaultPoolResources, never()).selectOrCreate(any(), any(), any(), any());
+    }
+
+}
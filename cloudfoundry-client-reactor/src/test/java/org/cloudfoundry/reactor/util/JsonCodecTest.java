@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.cloudfoundry.reactor.AbstractRestTest;
+import org.junit.After;
+import org.junit.Test;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+public final class JsonCodecTest extends AbstractRestTest {
+
+    private final MockWebServer chunkedServer = new MockWebServer();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @After
+    public void shutdownChunked() throws IOException {
+        this.chunkedServer.shutdown();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void decodeStreaming() {
+        this.chunkedServer.enqueue(new MockResponse()
+            .setHeader("Content-Type", "application/json")
+            .setChunkedBody("{\"alpha\":\"test-value-1\"}\n{\"alpha\":\"test-value-2\"}\n{\"alpha\":\"test-value-3\",\"bravo\":[1,2,3]}", 7));
+
+        CONNECTION_CONTEXT.getHttpClient()
+            .get(this.chunkedServer.url("/").toString())
+            .transform(JsonCodec.decode(this.objectMapper, Map.class, true))
+            .map(value -> (Map<String, Object>) value)
+            .map(value -> value.get("alpha"))
+            .as(StepVerifier::create)
+            .expectNext("test-value-1", "test-value-2", "test-value-3")
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+    }
+
+}
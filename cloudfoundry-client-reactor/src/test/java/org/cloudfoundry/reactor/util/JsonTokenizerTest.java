@@ -0,0 +1,108 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class JsonTokenizerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void concatenatedValues() throws IOException {
+        JsonTokenizer tokenizer = new JsonTokenizer(this.objectMapper, 1024);
+
+        List<TokenBuffer> values = new ArrayList<>();
+        values.addAll(tokenizer.tokenize(Unpooled.copiedBuffer("{\"alpha\":1}{\"bravo\":[2,3]}", StandardCharsets.UTF_8)));
+        values.addAll(tokenizer.endOfInput());
+
+        assertThat(values).hasSize(2);
+        assertThat(read(values.get(0))).containsEntry("alpha", 1);
+        assertThat(read(values.get(1))).containsKey("bravo");
+    }
+
+    @Test
+    public void emptyInput() {
+        JsonTokenizer tokenizer = new JsonTokenizer(this.objectMapper, 1024);
+
+        assertThat(tokenizer.tokenize(Unpooled.EMPTY_BUFFER)).isEmpty();
+        assertThat(tokenizer.endOfInput()).isEmpty();
+    }
+
+    @Test(expected = JsonParsingException.class)
+    public void invalid() {
+        JsonTokenizer tokenizer = new JsonTokenizer(this.objectMapper, 1024);
+
+        tokenizer.tokenize(Unpooled.copiedBuffer("{\"alpha\":}", StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = JsonParsingException.class)
+    public void oversized() {
+        JsonTokenizer tokenizer = new JsonTokenizer(this.objectMapper, 16);
+
+        tokenizer.tokenize(Unpooled.copiedBuffer("{\"alpha\":[1,2,3,", StandardCharsets.UTF_8));
+        tokenizer.tokenize(Unpooled.copiedBuffer("4,5,6,7,8,9,10,11,12]", StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void oversizedStream() throws IOException {
+        JsonTokenizer tokenizer = new JsonTokenizer(this.objectMapper, 16);
+
+        List<TokenBuffer> values = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            values.addAll(tokenizer.tokenize(Unpooled.copiedBuffer("{\"alpha\":1}", StandardCharsets.UTF_8)));
+        }
+        values.addAll(tokenizer.endOfInput());
+
+        assertThat(values).hasSize(10);
+    }
+
+    @Test
+    public void splitAcrossChunks() throws IOException {
+        String payload = "{\"alpha\":\"test-value\",\"bravo\":{\"charlie\":[1,2,3]},\"delta\":true}";
+        JsonTokenizer tokenizer = new JsonTokenizer(this.objectMapper, 1024);
+
+        List<TokenBuffer> values = new ArrayList<>();
+        for (int i = 0; i < payload.length(); i += 3) {
+            values.addAll(tokenizer.tokenize(Unpooled.copiedBuffer(payload.substring(i, Math.min(i + 3, payload.length())), StandardCharsets.UTF_8)));
+        }
+        values.addAll(tokenizer.endOfInput());
+
+        assertThat(values).hasSize(1);
+        assertThat(read(values.get(0)))
+            .containsEntry("alpha", "test-value")
+            .containsEntry("delta", true)
+            .containsKey("bravo");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> read(TokenBuffer tokens) throws IOException {
+        return this.objectMapper.readValue(tokens.asParser(this.objectMapper), Map.class);
+    }
+
+}
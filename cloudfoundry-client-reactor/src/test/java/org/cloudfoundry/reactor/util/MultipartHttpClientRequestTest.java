@@ -0,0 +1,107 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.reactor.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.ResourceLeakDetector;
+import org.cloudfoundry.reactor.util.MultipartHttpClientRequest.PartHttpClientRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class MultipartHttpClientRequestTest {
+
+    private final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true);
+
+    private final byte[] content = new byte[150 * 1_024];
+
+    private final Path file;
+
+    private final ResourceLeakDetector.Level level = ResourceLeakDetector.getLevel();
+
+    public MultipartHttpClientRequestTest() throws IOException {
+        new Random().nextBytes(this.content);
+
+        this.file = Files.createTempFile("multipart-http-client-request-test-", ".bin");
+        Files.write(this.file, this.content);
+    }
+
+    @After
+    public void delete() throws IOException {
+        ResourceLeakDetector.setLevel(this.level);
+        Files.deleteIfExists(this.file);
+    }
+
+    @Before
+    public void paranoid() {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+    }
+
+    @Test
+    public void readFile() throws IOException {
+        List<ByteBuf> chunks = PartHttpClientRequest.readFile(this.allocator, this.file)
+            .collectList()
+            .block(Duration.ofSeconds(5));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try {
+            assertThat(chunks)
+                .extracting(ByteBuf::readableBytes)
+                .containsExactly(64 * 1_024, 64 * 1_024, 22 * 1_024);
+            assertThat(chunks).allMatch(ByteBuf::isDirect);
+
+            for (ByteBuf chunk : chunks) {
+                chunk.getBytes(chunk.readerIndex(), out, chunk.readableBytes());
+            }
+        } finally {
+            chunks.forEach(ByteBuf::release);
+        }
+
+        assertThat(out.toByteArray()).isEqualTo(this.content);
+        assertThat(chunks).allMatch(chunk -> chunk.refCnt() == 0);
+    }
+
+    @Test
+    public void readFileCancel() {
+        List<ByteBuf> chunks = PartHttpClientRequest.readFile(this.allocator, this.file)
+            .take(1)
+            .collectList()
+            .block(Duration.ofSeconds(5));
+
+        try {
+            assertThat(chunks).hasSize(1);
+            assertThat(chunks).allMatch(ByteBuf::isDirect);
+        } finally {
+            chunks.forEach(ByteBuf::release);
+        }
+
+        assertThat(chunks).allMatch(chunk -> chunk.refCnt() == 0);
+    }
+
+}
@@ -17,6 +17,7 @@
 package org.cloudfoundry.client.v2.resourcematch;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import org.cloudfoundry.Nullable;
@@ -29,6 +30,26 @@ import org.immutables.value.Value;
 @Value.Immutable
 abstract class _Resource {
 
+    @Value.Check
+    _Resource normalize() {
+        Integer size = getSize();
+        Long longSize = getLongSize();
+
+        if (size != null && longSize != null && size.longValue() != longSize) {
+            throw new IllegalStateException("Cannot build Resource, size and longSize must be equal if both are set");
+        }
+
+        if (size != null && longSize == null) {
+            return Resource.builder().from(this).longSize(size.longValue()).build();
+        }
+
+        if (size == null && longSize != null && longSize <= Integer.MAX_VALUE) {
+            return Resource.builder().from(this).size(longSize.intValue()).build();
+        }
+
+        return this;
+    }
+
     /**
      * The hash
      */
@@ -36,6 +57,13 @@ abstract class _Resource {
     @Nullable
     abstract String getHash();
 
+    /**
+     * The size, supporting files of 2 GiB and larger
+     */
+    @JsonProperty("size")
+    @Nullable
+    abstract Long getLongSize();
+
     /**
      * The POSIX file mode in an octal representation
      */
@@ -44,9 +72,9 @@ abstract class _Resource {
     abstract String getMode();
 
     /**
-     * The size
+     * The size, if it is less than 2 GiB.  Sizes of 2 GiB and larger are only available from {@link #getLongSize()}.
      */
-    @JsonProperty("size")
+    @JsonIgnore
     @Nullable
     abstract Integer getSize();
 }
@@ -17,6 +17,7 @@
 package org.cloudfoundry.doppler;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.cloudfoundry.Nullable;
 import org.immutables.value.Value;
 
 /**
@@ -25,6 +26,23 @@ import org.immutables.value.Value;
 @Value.Immutable
 abstract class _FirehoseRequest {
 
+    @Value.Check
+    void check() {
+        if (getShards() != null && getShards() < 1) {
+            throw new IllegalStateException("Cannot build FirehoseRequest, shards must be at least 1");
+        }
+    }
+
+    /**
+     * The number of connections to open under the subscription id.  Loggregator balances envelopes across all connections with the same subscription id, so additional shards increase
+     * throughput.  When set, even to {@code 1}, each shard reconnects independently after it is disconnected and the stream only terminates on a client error.  When not set, a single
+     * connection is opened and the stream terminates when that connection is closed.  In either case, envelopes are only received as quickly as they are requested unless a slow-consumer policy
+     * has been configured for the subscription.
+     */
+    @JsonIgnore
+    @Nullable
+    abstract Integer getShards();
+
     /**
      * The subscription id
      */
@@ -124,6 +124,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
@@ -157,6 +158,10 @@ public final class DefaultApplications implements Applications {
 
     private static final Duration LOG_MESSAGE_TIMESPAN = Duration.ofMillis(500);
 
+    private static final int LOG_MESSAGE_WINDOW = 10_000;
+
+    private static final LogTailMetrics LOG_TAIL_METRICS = new LogTailMetrics();
+
     private static final int MAX_NUMBER_OF_RECENT_EVENTS = 50;
 
     private static final String STARTED_STATE = "STARTED";
@@ -182,6 +187,15 @@ public final class DefaultApplications implements Applications {
         this.spaceId = spaceId;
     }
 
+    /**
+     * Returns the metrics of the reconnecting log tails opened by {@link #logs(LogsRequest)}
+     *
+     * @return the log tail metrics
+     */
+    public static LogTailMetrics getLogTailMetrics() {
+        return LOG_TAIL_METRICS;
+    }
+
     @Override
     public Mono<Void> copySource(CopySourceApplicationRequest request) {
         return Mono
@@ -346,7 +360,7 @@ public final class DefaultApplications implements Applications {
         return Mono
             .zip(this.cloudFoundryClient, this.spaceId)
             .flatMap(function((cloudFoundryClient, spaceId) -> getApplicationId(cloudFoundryClient, request.getName(), spaceId)))
-            .flatMapMany(applicationId -> getLogs(this.dopplerClient, applicationId, request.getRecent()))
+            .flatMapMany(applicationId -> getLogs(this.dopplerClient, applicationId, request.getRecent(), request.getReconnect()))
             .transform(OperationsLogging.log("Get Application Logs"))
             .checkpoint();
     }
@@ -868,18 +882,23 @@ public final class DefaultApplications implements Applications {
         return ResourceUtils.getEntity(resource).getEnvironmentJsons();
     }
 
-    private static Flux<LogMessage> getLogs(Mono<DopplerClient> dopplerClient, String applicationId, Boolean recent) {
+    private static Flux<LogMessage> getLogs(Mono<DopplerClient> dopplerClient, String applicationId, Boolean recent, Boolean reconnect) {
         if (Optional.ofNullable(recent).orElse(false)) {
             return requestLogsRecent(dopplerClient, applicationId)
                 .filter(e -> EventType.LOG_MESSAGE == e.getEventType())
                 .map(Envelope::getLogMessage)
                 .collectSortedList(LOG_MESSAGE_COMPARATOR)
                 .flatMapIterable(d -> d);
+        } else if (Optional.ofNullable(reconnect).orElse(false)) {
+            return Mono.subscriberContext()
+                .flatMapMany(context -> new LogTail(dopplerClient, applicationId, LOG_MESSAGE_COMPARATOR, LOG_MESSAGE_TIMESPAN, context.getOrDefault(LogTailMetrics.class, LOG_TAIL_METRICS))
+                    .tail())
+                .compose(SortingUtils.reorder(LOG_MESSAGE_COMPARATOR, LogMessage::getTimestamp, LOG_MESSAGE_TIMESPAN, LOG_MESSAGE_WINDOW));
         } else {
             return requestLogsStream(dopplerClient, applicationId)
                 .filter(e -> EventType.LOG_MESSAGE == e.getEventType())
                 .map(Envelope::getLogMessage)
-                .compose(SortingUtils.timespan(LOG_MESSAGE_COMPARATOR, LOG_MESSAGE_TIMESPAN));
+                .compose(SortingUtils.reorder(LOG_MESSAGE_COMPARATOR, LogMessage::getTimestamp, LOG_MESSAGE_TIMESPAN, LOG_MESSAGE_WINDOW));
         }
     }
 
@@ -1635,7 +1654,7 @@ public final class DefaultApplications implements Applications {
                     .hash(artifactMetadata.getHash())
                     .mode(artifactMetadata.getPermissions())
                     .path(artifactMetadata.getPath())
-                    .size(artifactMetadata.getSize())
+                    .longSize(artifactMetadata.getSize())
                     .build()),
                 (a, b) -> a)
             .build();
@@ -1858,12 +1877,12 @@ public final class DefaultApplications implements Applications {
                                                        Duration stagingTimeout) {
         return Mono
             .defer(() -> {
-                if (matchedResources.isEmpty()) {
+                if (matchedResources.isEmpty() || Files.isDirectory(application)) {
                     return requestUploadApplication(cloudFoundryClient, applicationId, application, matchedResources);
                 } else {
-                    List<String> paths = matchedResources.stream()
+                    Set<String> paths = matchedResources.stream()
                         .map(ResourceMatchingUtils.ArtifactMetadata::getPath)
-                        .collect(Collectors.toList());
+                        .collect(Collectors.toSet());
 
                     return FileUtils.compress(application, p -> !paths.contains(p))
                         .flatMap(filteredApplication -> requestUploadApplication(cloudFoundryClient, applicationId, filteredApplication, matchedResources)
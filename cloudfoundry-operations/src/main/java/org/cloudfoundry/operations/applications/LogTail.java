@@ -0,0 +1,200 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.operations.applications;
+
+import org.cloudfoundry.AbstractCloudFoundryException;
+import org.cloudfoundry.doppler.DopplerClient;
+import org.cloudfoundry.doppler.Envelope;
+import org.cloudfoundry.doppler.EventType;
+import org.cloudfoundry.doppler.LogMessage;
+import org.cloudfoundry.doppler.RecentLogsRequest;
+import org.cloudfoundry.doppler.StreamRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple3;
+import reactor.util.function.Tuples;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A streaming log tail that survives dropped connections.  After a connection completes or fails, the tail reconnects with a jittered exponential backoff and back-fills the logs emitted while it
+ * was disconnected from recent logs.  Until the newest message emitted or back-filled has been passed, log messages are deduplicated by timestamp, source instance and message so that neither the back-fill nor
+ * the resumed stream repeat messages that were already emitted.  Messages outside of that window are never discarded.
+ */
+final class LogTail {
+
+    private static final int DEDUPLICATION_WINDOW = 10_000;
+
+    private static final Duration MAXIMUM_BACKOFF = Duration.ofSeconds(30);
+
+    private static final Duration MINIMUM_BACKOFF = Duration.ofSeconds(1);
+
+    private final String applicationId;
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private final Comparator<LogMessage> comparator;
+
+    private final Mono<DopplerClient> dopplerClient;
+
+    private final long lateness;
+
+    private final LogTailMetrics metrics;
+
+    private final Map<Tuple3<Long, String, String>, Boolean> seen = Collections.synchronizedMap(new LinkedHashMap<Tuple3<Long, String, String>, Boolean>() {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Tuple3<Long, String, String>, Boolean> eldest) {
+            return size() > DEDUPLICATION_WINDOW;
+        }
+
+    });
+
+    private volatile Long disconnected;
+
+    private volatile long timestamp = Long.MIN_VALUE;
+
+    LogTail(Mono<DopplerClient> dopplerClient, String applicationId, Comparator<LogMessage> comparator, Duration lateness, LogTailMetrics metrics) {
+        this.applicationId = applicationId;
+        this.comparator = comparator;
+        this.dopplerClient = dopplerClient;
+        this.lateness = lateness.toNanos();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the log messages of the application, reconnecting whenever the connection is dropped
+     *
+     * @return the log messages of the application
+     */
+    Flux<LogMessage> tail() {
+        return Flux.defer(this::connect)
+            .repeatWhen(completions -> completions
+                .concatMap(n -> reconnect()))
+            .retryWhen(errors -> errors
+                .concatMap(error -> isReconnectable(error) ? reconnect() : Mono.error(error)));
+    }
+
+    private static Duration getBackoff(int attempt) {
+        Duration backoff = attempt >= 5 ? MAXIMUM_BACKOFF : MINIMUM_BACKOFF.multipliedBy(1L << attempt);
+        long half = backoff.toMillis() / 2;
+
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(half + 1));
+    }
+
+    private static Tuple3<Long, String, String> getKey(LogMessage logMessage) {
+        return Tuples.of(logMessage.getTimestamp(), Objects.toString(logMessage.getSourceInstance(), ""), logMessage.getMessage());
+    }
+
+    private static boolean isReconnectable(Throwable t) {
+        return !(t instanceof AbstractCloudFoundryException) || ((AbstractCloudFoundryException) t).getStatusCode() >= 500;
+    }
+
+    private static Flux<LogMessage> toLogMessages(Flux<Envelope> envelopes) {
+        return envelopes
+            .filter(e -> EventType.LOG_MESSAGE == e.getEventType())
+            .map(Envelope::getLogMessage);
+    }
+
+    private Flux<LogMessage> backfill(AtomicLong horizon) {
+        long disconnected = this.disconnected;
+        AtomicLong latest = new AtomicLong(this.timestamp);
+        long since = this.timestamp == Long.MIN_VALUE ? Long.MIN_VALUE : this.timestamp - this.lateness;
+
+        return this.dopplerClient
+            .flatMapMany(client -> client
+                .recentLogs(RecentLogsRequest.builder()
+                    .applicationId(this.applicationId)
+                    .build()))
+            .doOnSubscribe(s -> this.metrics.gap(System.nanoTime() - disconnected))
+            .transform(LogTail::toLogMessages)
+            .filter(logMessage -> logMessage.getTimestamp() >= since)
+            .filter(this::isNew)
+            .doOnNext(logMessage -> {
+                latest.accumulateAndGet(logMessage.getTimestamp(), Math::max);
+                this.metrics.backfilled();
+            })
+            .doOnComplete(() -> horizon.set(latest.get()))
+            .sort(this.comparator);
+    }
+
+    private Flux<LogMessage> connect() {
+        Flux<LogMessage> stream = this.dopplerClient
+            .flatMapMany(client -> client
+                .stream(StreamRequest.builder()
+                    .applicationId(this.applicationId)
+                    .build()))
+            .transform(LogTail::toLogMessages)
+            .doOnNext(logMessage -> this.attempts.set(0));
+
+        Flux<LogMessage> logMessages;
+        if (this.disconnected == null) {
+            logMessages = stream
+                .doOnNext(this::remember);
+        } else {
+            AtomicLong horizon = new AtomicLong(Long.MAX_VALUE);
+
+            logMessages = Flux.mergeSequential(backfill(horizon), stream
+                .filter(logMessage -> isNew(logMessage, horizon.get())));
+        }
+
+        return logMessages
+            .doOnNext(logMessage -> this.timestamp = Math.max(this.timestamp, logMessage.getTimestamp()))
+            .doOnComplete(this::disconnected)
+            .doOnError(t -> disconnected());
+    }
+
+    private void disconnected() {
+        this.disconnected = System.nanoTime();
+    }
+
+    private boolean isNew(LogMessage logMessage) {
+        if (this.seen.put(getKey(logMessage), Boolean.TRUE) == null) {
+            return true;
+        }
+
+        this.metrics.duplicate();
+        return false;
+    }
+
+    private boolean isNew(LogMessage logMessage, long horizon) {
+        if (logMessage.getTimestamp() > horizon) {
+            remember(logMessage);
+            return true;
+        }
+
+        return isNew(logMessage);
+    }
+
+    private Mono<Long> reconnect() {
+        return Mono.delay(getBackoff(this.attempts.getAndIncrement()))
+            .doOnNext(n -> this.metrics.reconnected());
+    }
+
+    private void remember(LogMessage logMessage) {
+        this.seen.put(getKey(logMessage), Boolean.TRUE);
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.operations.applications;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics describing the reconnecting log tails opened by {@link DefaultApplications#logs(LogsRequest)}.  Unless an instance is placed in the subscriber's {@link reactor.util.context.Context} under
+ * the {@code LogTailMetrics.class} key, log tails are recorded in the instance returned by {@link DefaultApplications#getLogTailMetrics()}, which is shared by every caller.
+ */
+public final class LogTailMetrics {
+
+    private final LongAdder backfilledCount = new LongAdder();
+
+    private final LongAdder duplicateCount = new LongAdder();
+
+    private final LongAdder gapCount = new LongAdder();
+
+    private final AtomicLong lastGap = new AtomicLong();
+
+    private final AtomicLong maximumGap = new AtomicLong();
+
+    private final LongAdder reconnectCount = new LongAdder();
+
+    /**
+     * Returns the number of log messages recovered from recent logs after a reconnect
+     *
+     * @return the number of back-filled log messages
+     */
+    public long getBackfilledCount() {
+        return this.backfilledCount.sum();
+    }
+
+    /**
+     * Returns the number of log messages discarded because they had already been emitted
+     *
+     * @return the number of duplicate log messages
+     */
+    public long getDuplicateCount() {
+        return this.duplicateCount.sum();
+    }
+
+    /**
+     * Returns the number of gaps back-filled after a reconnect
+     *
+     * @return the number of gaps
+     */
+    public long getGapCount() {
+        return this.gapCount.sum();
+    }
+
+    /**
+     * Returns the duration, in milliseconds, of the most recent gap between a log tail being disconnected and its logs being back-filled
+     *
+     * @return the duration of the most recent gap
+     */
+    public long getLastGap() {
+        return this.lastGap.get();
+    }
+
+    /**
+     * Returns the duration, in milliseconds, of the longest gap between a log tail being disconnected and its logs being back-filled
+     *
+     * @return the duration of the longest gap
+     */
+    public long getMaximumGap() {
+        return this.maximumGap.get();
+    }
+
+    /**
+     * Returns the number of times a log tail has reconnected
+     *
+     * @return the number of reconnects
+     */
+    public long getReconnectCount() {
+        return this.reconnectCount.sum();
+    }
+
+    void backfilled() {
+        this.backfilledCount.increment();
+    }
+
+    void duplicate() {
+        this.duplicateCount.increment();
+    }
+
+    void gap(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+
+        this.gapCount.increment();
+        this.lastGap.set(millis);
+        this.maximumGap.accumulateAndGet(millis, Math::max);
+    }
+
+    void reconnected() {
+        this.reconnectCount.increment();
+    }
+
+}
@@ -36,4 +36,10 @@ abstract class _LogsRequest {
     @Nullable
     abstract Boolean getRecent();
 
+    /**
+     * Whether a streaming log tail should reconnect after its connection is dropped, back-filling the logs emitted while it was disconnected
+     */
+    @Nullable
+    abstract Boolean getReconnect();
+
 }
@@ -129,6 +129,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 import reactor.test.scheduler.VirtualTimeScheduler;
+import reactor.util.context.Context;
 
 import java.io.IOException;
 import java.nio.file.Path;
@@ -1174,6 +1175,32 @@ public final class DefaultApplicationsTest extends AbstractOperationsTest {
             .verify(Duration.ofSeconds(5));
     }
 
+    @Test
+    public void logsReconnect() {
+        requestApplications(this.cloudFoundryClient, "test-application-name", TEST_SPACE_ID, "test-metadata-id");
+        requestLogsRecentBackfill(this.dopplerClient, "test-metadata-id");
+        requestLogsStreamReconnect(this.dopplerClient, "test-metadata-id");
+
+        LogTailMetrics metrics = new LogTailMetrics();
+
+        StepVerifier.withVirtualTime(() -> this.applications
+            .logs(LogsRequest.builder()
+                .name("test-application-name")
+                .recent(false)
+                .reconnect(true)
+                .build())
+            .subscriberContext(Context.of(LogTailMetrics.class, metrics)))
+            .thenAwait(Duration.ofSeconds(5))
+            .expectNext(logMessage(1), logMessage(2), logMessage(3))
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(metrics.getReconnectCount()).isEqualTo(1);
+        assertThat(metrics.getGapCount()).isEqualTo(1);
+        assertThat(metrics.getBackfilledCount()).isEqualTo(1);
+        assertThat(metrics.getDuplicateCount()).isEqualTo(2);
+    }
+
     @Test
     public void pushDocker() {
         requestSpace(this.cloudFoundryClient, TEST_SPACE_ID, TEST_ORGANIZATION_ID);
@@ -2798,6 +2825,21 @@ public final class DefaultApplicationsTest extends AbstractOperationsTest {
             .verify(Duration.ofSeconds(5));
     }
 
+    private static LogMessage logMessage(int index) {
+        return fill(LogMessage.builder(), "log-message-")
+            .message(String.format("test-message-%d", index))
+            .timestamp(index * 1_000_000_000L)
+            .build();
+    }
+
+    private static Envelope logMessageEnvelope(int index) {
+        return Envelope.builder()
+            .eventType(EventType.LOG_MESSAGE)
+            .logMessage(logMessage(index))
+            .origin("rsp")
+            .build();
+    }
+
     private static void provideRandomWords(RandomWords randomWords) {
         when(randomWords.getAdjective()).thenReturn("test-adjective");
         when(randomWords.getNoun()).thenReturn("test-noun");
@@ -3514,7 +3556,7 @@ public final class DefaultApplicationsTest extends AbstractOperationsTest {
             .reduce(ListMatchingResourcesRequest.builder(), (builder, artifactMetadata) -> builder.resource(Resource.builder()
                 .hash(artifactMetadata.getHash())
                 .mode(artifactMetadata.getPermissions())
-                .size(artifactMetadata.getSize())
+                .longSize(artifactMetadata.getSize())
                 .build()), (a, b) -> a.addAllResources(b.build().getResources()))
             .build();
 
@@ -3578,6 +3620,15 @@ public final class DefaultApplicationsTest extends AbstractOperationsTest {
                     .build()));
     }
 
+    private static void requestLogsRecentBackfill(DopplerClient dopplerClient, String applicationId) {
+        when(dopplerClient
+            .recentLogs(RecentLogsRequest.builder()
+                .applicationId(applicationId)
+                .build()))
+            .thenReturn(Flux
+                .just(logMessageEnvelope(1), logMessageEnvelope(2)));
+    }
+
     private static void requestLogsStream(DopplerClient dopplerClient, String applicationId) {
         when(dopplerClient
             .stream(StreamRequest.builder()
@@ -3592,6 +3643,17 @@ public final class DefaultApplicationsTest extends AbstractOperationsTest {
                     .build()));
     }
 
+    private static void requestLogsStreamReconnect(DopplerClient dopplerClient, String applicationId) {
+        when(dopplerClient
+            .stream(StreamRequest.builder()
+                .applicationId(applicationId)
+                .build()))
+            .thenReturn(Flux
+                .just(logMessageEnvelope(1)), Flux
+                .just(logMessageEnvelope(2), logMessageEnvelope(3))
+                .concatWith(Flux.never()));
+    }
+
     private static void requestOrganizationSpacesByName(CloudFoundryClient cloudFoundryClient, String organizationId, String space) {
         when(cloudFoundryClient.organizations()
             .listSpaces(ListOrganizationSpacesRequest.builder()
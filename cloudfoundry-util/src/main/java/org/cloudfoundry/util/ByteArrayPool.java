@@ -16,102 +16,209 @@
 
 package org.cloudfoundry.util;
 
-import java.time.Duration;
-import java.time.Instant;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Optional;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
 
 /**
- * Dynamically creates {@link byte} arrays and caches them, reusing them once they have been released.
+ * Caches {@code byte} arrays and direct {@link ByteBuffer}s, reusing them once they have been released.
  * <p>
- * The maximum number of byte arrays is unbounded
+ * Buffers are pooled in power-of-two size classes from 4 KiB to 1 MiB.  Each thread keeps a single buffer of each size class up to 64 KiB in front of a shared, lock-free set of slots per size
+ * class.  Requests larger than the largest size class are allocated without pooling.
  * <p>
- * The default time-to-live for unused byte arrays is one minute
+ * The shared slots of each size class retain at most 4 MiB, so the memory held by an idle pool is bounded without an evictor
  */
 public final class ByteArrayPool {
 
-    private static final AtomicLong EVICTOR_COUNTER = new AtomicLong();
+    private static final Pool<byte[]> BYTE_ARRAYS = new Pool<>(byte[]::new, array -> array.length);
 
-    private static final ThreadFactory EVICTOR_FACTORY = r -> {
-        Thread t = new Thread(r, "byte-buffer-evictor-" + EVICTOR_COUNTER.incrementAndGet());
-        t.setDaemon(true);
-        return t;
-    };
+    private static final int DEFAULT_LENGTH = 1_024 * 1_024;
 
-    private static final int MIBIBYTE = 1_024 * 1_024;
+    private static final Pool<ByteBuffer> DIRECT_BYTE_BUFFERS = new Pool<>(ByteBuffer::allocateDirect, ByteBuffer::capacity);
 
-    private static ByteArrayPool INSTANCE = new ByteArrayPool(MIBIBYTE, Duration.ofMinutes(1));
+    private static final int MAXIMUM_LENGTH = 1_024 * 1_024;
 
-    private final Queue<ByteArrayExpiry> cache = new ConcurrentLinkedQueue<>();
+    private static final int MAXIMUM_MAGAZINE_LENGTH = 64 * 1_024;
 
-    private final int capacity;
+    private static final int MAXIMUM_POOLED_BYTES = 4 * 1_024 * 1_024;
 
-    private final Duration ttl;
+    private static final int MAXIMUM_SLOTS = 64;
 
-    private ByteArrayPool(int capacity, Duration ttl) {
-        this.capacity = capacity;
-        this.ttl = ttl;
+    private static final ByteArrayPoolMetrics METRICS = new ByteArrayPoolMetrics();
 
-        Executors.newScheduledThreadPool(1, EVICTOR_FACTORY)
-            .scheduleAtFixedRate(this::evict, ttl.toMillis(), ttl.toMillis(), TimeUnit.MILLISECONDS);
+    private static final int MINIMUM_SHIFT = 12;
+
+    private static final int SIZE_CLASSES = 9;
+
+    private ByteArrayPool() {
+    }
+
+    /**
+     * Returns the metrics for the pool
+     *
+     * @return the metrics for the pool
+     */
+    public static ByteArrayPoolMetrics getMetrics() {
+        return METRICS;
     }
 
     /**
-     * Executes a {@link Consumer} providing a pooled {@code byte} array
+     * Executes a {@link Consumer} providing a pooled 1 MiB {@code byte} array
      *
      * @param consumer the {@link Consumer} of the {@link byte} array
      */
     public static void withByteArray(Consumer<byte[]> consumer) {
-        INSTANCE.doWithByteArray(consumer);
+        withByteArray(DEFAULT_LENGTH, consumer);
     }
 
-    private void doWithByteArray(Consumer<byte[]> consumer) {
-        byte[] byteArray = Optional.ofNullable(this.cache.poll())
-            .map(ByteArrayExpiry::getByteArray)
-            .orElseGet(() -> new byte[this.capacity]);
+    /**
+     * Executes a {@link Consumer} providing a pooled {@code byte} array.  The array is at least {@code minimumLength} long, but may be longer.
+     *
+     * @param minimumLength the minimum length of the {@code byte} array
+     * @param consumer      the {@link Consumer} of the {@link byte} array
+     */
+    public static void withByteArray(int minimumLength, Consumer<byte[]> consumer) {
+        BYTE_ARRAYS.with(minimumLength, consumer);
+    }
 
-        try {
-            consumer.accept(byteArray);
-        } finally {
-            this.cache.offer(new ByteArrayExpiry(byteArray, Instant.now().plus(this.ttl)));
+    /**
+     * Executes a {@link Consumer} providing a pooled, cleared, direct {@link ByteBuffer}.  The buffer has a capacity of at least {@code minimumCapacity}, but may be larger.
+     *
+     * @param minimumCapacity the minimum capacity of the {@link ByteBuffer}
+     * @param consumer        the {@link Consumer} of the {@link ByteBuffer}
+     */
+    public static void withDirectByteBuffer(int minimumCapacity, Consumer<ByteBuffer> consumer) {
+        DIRECT_BYTE_BUFFERS.with(minimumCapacity, byteBuffer -> {
+            byteBuffer.clear();
+            consumer.accept(byteBuffer);
+        });
+    }
+
+    private static int getLength(int sizeClass) {
+        return 1 << (sizeClass + MINIMUM_SHIFT);
+    }
+
+    private static int getSizeClassForLength(int length) {
+        if (Integer.bitCount(length) != 1 || length < getLength(0) || length > MAXIMUM_LENGTH) {
+            return -1;
         }
+
+        return Integer.numberOfTrailingZeros(length) - MINIMUM_SHIFT;
     }
 
-    private void evict() {
-        Instant now = Instant.now();
+    private static int getSizeClassForMinimumLength(int minimumLength) {
+        if (minimumLength <= getLength(0)) {
+            return 0;
+        } else if (minimumLength > MAXIMUM_LENGTH) {
+            return -1;
+        }
 
-        new ArrayList<>(this.cache).stream()
-            .filter(expiry -> expiry.getExpiration().isBefore(now))
-            .forEach(this.cache::remove);
+        return Integer.SIZE - Integer.numberOfLeadingZeros(minimumLength - 1) - MINIMUM_SHIFT;
     }
 
-    private static class ByteArrayExpiry {
+    private static final class Pool<T> {
+
+        private final IntFunction<T> allocator;
+
+        private final ToIntFunction<T> capacity;
 
-        private final byte[] byteArray;
+        private final ThreadLocal<Object[]> magazines = ThreadLocal.withInitial(() -> new Object[SIZE_CLASSES]);
 
-        private final Instant expiration;
+        private final List<AtomicReferenceArray<T>> slots = new ArrayList<>(SIZE_CLASSES);
 
-        private ByteArrayExpiry(byte[] byteArray, Instant expiration) {
-            this.byteArray = byteArray;
-            this.expiration = expiration;
+        private Pool(IntFunction<T> allocator, ToIntFunction<T> capacity) {
+            this.allocator = allocator;
+            this.capacity = capacity;
+
+            for (int sizeClass = 0; sizeClass < SIZE_CLASSES; sizeClass++) {
+                this.slots.add(new AtomicReferenceArray<>(Math.max(1, Math.min(MAXIMUM_SLOTS, MAXIMUM_POOLED_BYTES / getLength(sizeClass)))));
+            }
         }
 
-        private byte[] getByteArray() {
-            return this.byteArray;
+        private static int getStart(AtomicReferenceArray<?> slots) {
+            return (int) (Thread.currentThread().getId() % slots.length());
         }
 
-        private Instant getExpiration() {
-            return this.expiration;
+        @SuppressWarnings("unchecked")
+        private T acquire(int minimumLength) {
+            int sizeClass = getSizeClassForMinimumLength(minimumLength);
+            if (sizeClass == -1) {
+                METRICS.miss();
+                return this.allocator.apply(minimumLength);
+            }
+
+            Object[] magazine = this.magazines.get();
+            if (magazine[sizeClass] != null) {
+                T candidate = (T) magazine[sizeClass];
+                magazine[sizeClass] = null;
+                METRICS.hit(getLength(sizeClass));
+                return candidate;
+            }
+
+            AtomicReferenceArray<T> slots = this.slots.get(sizeClass);
+            int start = getStart(slots);
+
+            for (int i = 0; i < slots.length(); i++) {
+                int index = (start + i) % slots.length();
+
+                T candidate;
+                if (slots.get(index) != null && (candidate = slots.getAndSet(index, null)) != null) {
+                    METRICS.hit(getLength(sizeClass));
+                    return candidate;
+                }
+            }
+
+            METRICS.miss();
+            return this.allocator.apply(getLength(sizeClass));
         }
 
-    }
+        private void release(T candidate) {
+            int length = this.capacity.applyAsInt(candidate);
+
+            int sizeClass = getSizeClassForLength(length);
+            if (sizeClass == -1) {
+                METRICS.discard();
+                return;
+            }
+
+            if (length <= MAXIMUM_MAGAZINE_LENGTH) {
+                Object[] magazine = this.magazines.get();
+                if (magazine[sizeClass] == null) {
+                    magazine[sizeClass] = candidate;
+                    METRICS.retain(length);
+                    return;
+                }
+            }
+
+            AtomicReferenceArray<T> slots = this.slots.get(sizeClass);
+            int start = getStart(slots);
+
+            for (int i = 0; i < slots.length(); i++) {
+                int index = (start + i) % slots.length();
+
+                if (slots.get(index) == null && slots.compareAndSet(index, null, candidate)) {
+                    METRICS.retain(length);
+                    return;
+                }
+            }
+
+            METRICS.discard();
+        }
+
+        private void with(int minimumLength, Consumer<T> consumer) {
+            T candidate = acquire(minimumLength);
 
+            try {
+                consumer.accept(candidate);
+            } finally {
+                release(candidate);
+            }
+        }
+
+    }
 
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics describing the buffers handed out by {@link ByteArrayPool}
+ */
+public final class ByteArrayPoolMetrics {
+
+    private final LongAdder discardCount = new LongAdder();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder retainedBytes = new LongAdder();
+
+    ByteArrayPoolMetrics() {
+    }
+
+    /**
+     * Returns the number of released buffers that were not retained because the pool was full or the buffer was larger than the largest size class
+     *
+     * @return the number of discarded buffers
+     */
+    public long getDiscardCount() {
+        return this.discardCount.sum();
+    }
+
+    /**
+     * Returns the number of requests satisfied by a pooled buffer
+     *
+     * @return the number of hits
+     */
+    public long getHitCount() {
+        return this.hitCount.sum();
+    }
+
+    /**
+     * Returns the number of requests that required a new buffer to be allocated
+     *
+     * @return the number of misses
+     */
+    public long getMissCount() {
+        return this.missCount.sum();
+    }
+
+    /**
+     * Returns the approximate number of bytes currently retained by the pool.  Buffers retained by threads that have since terminated are included until they are garbage collected.
+     *
+     * @return the number of retained bytes
+     */
+    public long getRetainedBytes() {
+        return this.retainedBytes.sum();
+    }
+
+    void discard() {
+        this.discardCount.increment();
+    }
+
+    void hit(int length) {
+        this.hitCount.increment();
+        this.retainedBytes.add(-length);
+    }
+
+    void miss() {
+        this.missCount.increment();
+    }
+
+    void retain(int length) {
+        this.retainedBytes.add(length);
+    }
+
+}
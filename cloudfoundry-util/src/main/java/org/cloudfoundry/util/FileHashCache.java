@@ -0,0 +1,239 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Exceptions;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A persistent cache of the SHA-1 hashes of application files.  Each application directory has its own index, stored in the cache directory, that maps a file's relative path to its hash along with
+ * the size, modification time, and file key (typically the inode) that the hash was calculated for.  Files whose attributes have not changed since they were last hashed are not read again.
+ * <p>
+ * Indexes are replaced atomically so that concurrent pushes of the same application never observe a partially written index.  An index that cannot be read is discarded and rebuilt.  Each index only
+ * retains the files seen during the most recent push, and indexes that have not been used for {@code 30} days are deleted.
+ */
+public final class FileHashCache {
+
+    private static final Duration EXPIRATION = Duration.ofDays(30);
+
+    private static final String HEADER = "cloudfoundry-hash-index 1";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("cloudfoundry-client.resource-matching");
+
+    private static final long RACY_WINDOW = Duration.ofSeconds(2).toMillis();
+
+    private static final String SEPARATOR = "\t";
+
+    private final Path directory;
+
+    /**
+     * Creates a new instance
+     *
+     * @param directory the directory to store indexes in
+     */
+    public FileHashCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the directory that indexes are stored in
+     *
+     * @return the directory that indexes are stored in
+     */
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    Index open(Path root) {
+        Path indexFile = this.directory.resolve(String.format("%s.idx", FileUtils.hash(new ByteArrayInputStream(root.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8)))));
+        return new Index(root, indexFile, read(indexFile));
+    }
+
+    private static String getFileKey(BasicFileAttributes attributes) {
+        Object fileKey = attributes.fileKey();
+        return fileKey == null ? "-" : fileKey.toString().replace(SEPARATOR, " ");
+    }
+
+    private static Map<String, Entry> read(Path indexFile) {
+        Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+        try (BufferedReader in = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(in.readLine())) {
+                throw new IOException("Unrecognized index header");
+            }
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split(SEPARATOR, 5);
+                if (fields.length != 5 || fields[0].length() != 40) {
+                    throw new IOException(String.format("Malformed index entry '%s'", line));
+                }
+
+                entries.put(fields[4], new Entry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3]));
+            }
+
+            return entries;
+        } catch (NoSuchFileException e) {
+            return entries;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Discarding unreadable hash index {}: {}", indexFile, e.getMessage());
+
+            try {
+                Files.deleteIfExists(indexFile);
+            } catch (IOException f) {
+                LOGGER.debug("Unable to delete hash index {}", indexFile, f);
+            }
+
+            return new ConcurrentHashMap<>();
+        }
+    }
+
+    private void evict() throws IOException {
+        long expiration = System.currentTimeMillis() - EXPIRATION.toMillis();
+
+        try (DirectoryStream<Path> indexFiles = Files.newDirectoryStream(this.directory, "*.idx")) {
+            for (Path indexFile : indexFiles) {
+                if (Files.getLastModifiedTime(indexFile).toMillis() < expiration) {
+                    Files.deleteIfExists(indexFile);
+                }
+            }
+        }
+    }
+
+    final class Index {
+
+        private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+        private final Path indexFile;
+
+        private final Map<String, Entry> previous;
+
+        private final Path root;
+
+        private Index(Path root, Path indexFile, Map<String, Entry> previous) {
+            this.indexFile = indexFile;
+            this.previous = previous;
+            this.root = root;
+        }
+
+        /**
+         * Returns the SHA-1 hash of a file, reading the file only if it has changed since it was last hashed
+         *
+         * @param path the file to hash
+         * @return a {@link String} representation of the hash
+         */
+        String hash(Path path) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                String fileKey = getFileKey(attributes);
+                long lastModified = attributes.lastModifiedTime().toMillis();
+                long size = attributes.size();
+                String relativePath = FileUtils.getRelativePathName(this.root, path);
+
+                Entry entry = this.previous.get(relativePath);
+                if (entry == null || !entry.matches(size, lastModified, fileKey)) {
+                    entry = new Entry(FileUtils.hash(path), size, lastModified, fileKey);
+                }
+
+                if (System.currentTimeMillis() - lastModified > RACY_WINDOW && !relativePath.contains("\n")) {
+                    this.current.put(relativePath, entry);
+                }
+
+                return entry.hash;
+            } catch (IOException e) {
+                throw Exceptions.propagate(e);
+            }
+        }
+
+        /**
+         * Atomically replaces the stored index with the files hashed since this index was opened.  Failures are logged rather than propagated as the index is only an optimization.
+         */
+        void save() {
+            try {
+                Files.createDirectories(FileHashCache.this.directory);
+                Path staging = Files.createTempFile(FileHashCache.this.directory, "hash-index-", ".tmp");
+
+                try {
+                    try (BufferedWriter out = Files.newBufferedWriter(staging, StandardCharsets.UTF_8)) {
+                        out.write(HEADER);
+                        out.newLine();
+
+                        for (Map.Entry<String, Entry> entry : this.current.entrySet()) {
+                            Entry value = entry.getValue();
+                            out.write(String.join(SEPARATOR, value.hash, String.valueOf(value.size), String.valueOf(value.lastModified), value.fileKey, entry.getKey()));
+                            out.newLine();
+                        }
+                    }
+
+                    try {
+                        Files.move(staging, this.indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(staging, this.indexFile, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } finally {
+                    Files.deleteIfExists(staging);
+                }
+
+                evict();
+            } catch (IOException e) {
+                LOGGER.debug("Unable to save hash index {}", this.indexFile, e);
+            }
+        }
+
+    }
+
+    private static final class Entry {
+
+        private final String fileKey;
+
+        private final String hash;
+
+        private final long lastModified;
+
+        private final long size;
+
+        private Entry(String hash, long size, long lastModified, String fileKey) {
+            this.fileKey = fileKey;
+            this.hash = hash;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        private boolean matches(long size, long lastModified, String fileKey) {
+            return this.size == size && this.lastModified == lastModified && this.fileKey.equals(fileKey);
+        }
+
+    }
+
+}
@@ -16,34 +16,73 @@
 
 package org.cloudfoundry.util;
 
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.compress.archivers.zip.ZipFile;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
 import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.FileTime;
 import java.nio.file.attribute.PosixFilePermission;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
 
 /**
  * Utilities for files
  */
 public final class FileUtils {
 
+    private static final int BUFFER_SIZE = 64 * 1_024;
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList("7z", "aar", "bz2", "ear", "gif", "gz", "jar", "jpeg", "jpg", "mp3", "mp4", "png", "rar", "tgz",
+        "war", "webm", "webp", "woff", "woff2", "xz", "zip"));
+
+    private static final Scheduler COMPRESSION_SCHEDULER = Schedulers.newParallel("cloudfoundry-compress", Runtime.getRuntime().availableProcessors(), true);
+
     private static final Integer DEFAULT_PERMISSIONS = 0744;
 
+    private static final int DIRECT_BUFFER_SIZE = 1_024 * 1_024;
+
+    private static final long DIRECT_HASH_THRESHOLD = 1_024 * 1_024;
+
     private static final Map<PosixFilePermission, Integer> PERMISSION_MODES = FluentMap.<PosixFilePermission, Integer>builder()
         .entry(PosixFilePermission.OWNER_READ, 0400)
         .entry(PosixFilePermission.OWNER_WRITE, 0200)
@@ -70,7 +109,8 @@ public final class FileUtils {
     }
 
     /**
-     * Compresses a candidate {@link Path} filtering out entries
+     * Compresses a candidate {@link Path} filtering out entries.  Entries are compressed in parallel, on a scheduler shared by all compressions and bounded by the number of processors, and written
+     * in a deterministic order.  Entries that are already compressed, such as {@code .jar} and {@code .png} files, are stored rather than compressed again.
      *
      * @param candidate the candidate {@link Path} to compress
      * @param filter    a filter applied to each path
@@ -82,12 +122,22 @@ public final class FileUtils {
                 try {
                     Path staging = Files.createTempFile(String.format("compressed-%s-", candidate.getFileName()), ".zip");
 
-                    try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(staging.toFile())) {
+                    ExecutorService executor = new SchedulerExecutorService(COMPRESSION_SCHEDULER);
+
+                    try {
+                        ParallelScatterZipCreator creator = new ParallelScatterZipCreator(executor);
+
                         if (Files.isDirectory(candidate)) {
-                            compressFromDirectory(candidate, filter, out);
+                            scatterFromDirectory(candidate, filter, creator);
+                            writeTo(creator, staging);
                         } else {
-                            compressFromZip(candidate, filter, out);
+                            try (ZipFile zipFile = new ZipFile(candidate.toFile())) {
+                                scatterFromZip(zipFile, filter, creator);
+                                writeTo(creator, staging);
+                            }
                         }
+                    } finally {
+                        executor.shutdownNow();
                     }
 
                     return Mono.just(staging);
@@ -98,6 +148,23 @@ public final class FileUtils {
             .subscribeOn(Schedulers.elastic());
     }
 
+    /**
+     * Compresses a candidate {@link Path}, which may be a directory or an existing zip file, filtering out entries.  The compressed artifact is never written to disk.  Instead it is emitted as a
+     * stream of chunks, with compression proceeding only as quickly as the chunks are consumed.
+     *
+     * @param candidate the candidate {@link Path} to compress
+     * @param filter    a filter applied to each path
+     * @return the chunks of the compressed artifact
+     */
+    public static Flux<byte[]> compressStream(Path candidate, Predicate<String> filter) {
+        return Flux
+            .generate(() -> new ZipChunkProducer(candidate, filter), (ZipChunkProducer producer, SynchronousSink<byte[]> sink) -> {
+                producer.next(sink);
+                return producer;
+            }, ZipChunkProducer::cancel)
+            .subscribeOn(Schedulers.elastic());
+    }
+
     /**
      * Get the relative path of an application
      *
@@ -111,14 +178,22 @@ public final class FileUtils {
     }
 
     /**
-     * Calculates the SHA-1 hash for a {@link Path}
+     * Calculates the SHA-1 hash for a {@link Path}.  Large files are read through a pooled direct buffer rather than copied through a heap buffer.
      *
      * @param path the {@link Path} to calculate the hash for
      * @return a {@link String} representation of the hash
      */
     public static String hash(Path path) {
-        try (InputStream in = Files.newInputStream(path)) {
-            return hash(in);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MessageDigest digest = getSha1Digest();
+
+            if (channel.size() < DIRECT_HASH_THRESHOLD) {
+                ByteArrayPool.withByteArray(BUFFER_SIZE, buffer -> update(digest, channel, ByteBuffer.wrap(buffer)));
+            } else {
+                ByteArrayPool.withDirectByteBuffer(DIRECT_BUFFER_SIZE, buffer -> update(digest, channel, buffer));
+            }
+
+            return toHexString(digest);
         } catch (IOException e) {
             throw Exceptions.propagate(e);
         }
@@ -131,24 +206,20 @@ public final class FileUtils {
      * @return {@link String} representation of the hash
      */
     public static String hash(InputStream in) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("sha1");
+        MessageDigest digest = getSha1Digest();
 
-            ByteArrayPool.withByteArray(buffer -> {
-                try {
-                    int length;
-                    while ((length = in.read(buffer)) != -1) {
-                        digest.update(buffer, 0, length);
-                    }
-                } catch (IOException e) {
-                    throw Exceptions.propagate(e);
+        ByteArrayPool.withByteArray(BUFFER_SIZE, buffer -> {
+            try {
+                int length;
+                while ((length = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, length);
                 }
-            });
+            } catch (IOException e) {
+                throw Exceptions.propagate(e);
+            }
+        });
 
-            return String.format("%040x", new BigInteger(1, digest.digest()));
-        } catch (NoSuchAlgorithmException e) {
-            throw Exceptions.propagate(e);
-        }
+        return toHexString(digest);
     }
 
     /**
@@ -181,9 +252,9 @@ public final class FileUtils {
      * @param path the {@link Path} to calculate the size for
      * @return the size
      */
-    public static int size(Path path) {
+    public static long size(Path path) {
         try {
-            return (int) Files.size(path);
+            return Files.size(path);
         } catch (IOException e) {
             throw Exceptions.propagate(e);
         }
@@ -201,8 +272,10 @@ public final class FileUtils {
                 })
                 .filter(path -> filter.test(getRelativePathName(candidate, path)))
                 .forEach(path -> {
-                    try (InputStream in = Files.isDirectory(path) ? null : Files.newInputStream(path)) {
-                        write(in, Files.getLastModifiedTime(path), getUnixMode(path), out, getRelativePathName(candidate, path));
+                    boolean directory = Files.isDirectory(path);
+
+                    try (InputStream in = directory ? null : Files.newInputStream(path)) {
+                        write(in, Files.getLastModifiedTime(path), getUnixMode(path), out, getRelativePathName(candidate, path), directory ? 0 : Files.size(path));
                     } catch (IOException e) {
                         throw Exceptions.propagate(e);
                     }
@@ -222,7 +295,7 @@ public final class FileUtils {
                 if (filter.test(entry.getName())) {
                     try (InputStream in = zipFile.getInputStream(entry)) {
                         int mode = entry.getUnixMode();
-                        write(in, entry.getLastModifiedTime(), mode == 0 ? DEFAULT_PERMISSIONS : mode, out, entry.getName());
+                        write(in, entry.getLastModifiedTime(), mode == 0 ? DEFAULT_PERMISSIONS : mode, out, entry.getName(), entry.getSize());
                     }
                 }
             }
@@ -231,6 +304,22 @@ public final class FileUtils {
         }
     }
 
+    private static ZipArchiveEntry createEntry(String path, FileTime lastModifiedTime, int mode) {
+        ZipArchiveEntry entry = new ZipArchiveEntry(path);
+        entry.setLastModifiedTime(lastModifiedTime);
+        entry.setMethod(entry.isDirectory() || isCompressed(path) ? ZipEntry.STORED : ZipEntry.DEFLATED);
+        entry.setUnixMode(mode);
+        return entry;
+    }
+
+    private static MessageDigest getSha1Digest() {
+        try {
+            return MessageDigest.getInstance("sha1");
+        } catch (NoSuchAlgorithmException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
     private static int getUnixMode(Path path) throws IOException {
         if (!isPosixFile(path)) {
             return DEFAULT_PERMISSIONS;
@@ -241,19 +330,98 @@ public final class FileUtils {
             .sum();
     }
 
+    private static boolean isCompressed(String path) {
+        int index = path.lastIndexOf('.');
+        return index != -1 && COMPRESSED_EXTENSIONS.contains(path.substring(index + 1).toLowerCase(Locale.ENGLISH));
+    }
+
     private static boolean isPosixFile(Path path) {
         return path.getFileSystem().supportedFileAttributeViews().contains("posix");
     }
 
-    private static void write(InputStream in, FileTime lastModifiedTime, int mode, ZipArchiveOutputStream out, String path) {
+    private static void scatterFromDirectory(Path candidate, Predicate<String> filter, ParallelScatterZipCreator creator) {
+        try (Stream<Path> contents = Files.walk(candidate)) {
+            contents
+                .filter(path -> {
+                    try {
+                        return !Files.isSameFile(candidate, path);
+                    } catch (IOException e) {
+                        throw Exceptions.propagate(e);
+                    }
+                })
+                .sorted()
+                .filter(path -> filter.test(getRelativePathName(candidate, path)))
+                .forEach(path -> {
+                    try {
+                        ZipArchiveEntry entry = createEntry(getRelativePathName(candidate, path), Files.getLastModifiedTime(path), getUnixMode(path));
+
+                        creator.addArchiveEntry(entry, () -> {
+                            try {
+                                return entry.isDirectory() ? new ByteArrayInputStream(new byte[0]) : Files.newInputStream(path);
+                            } catch (IOException e) {
+                                throw Exceptions.propagate(e);
+                            }
+                        });
+                    } catch (IOException e) {
+                        throw Exceptions.propagate(e);
+                    }
+                });
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private static void scatterFromZip(ZipFile zipFile, Predicate<String> filter, ParallelScatterZipCreator creator) {
+        Enumeration<ZipArchiveEntry> entries = zipFile.getEntries();
+
+        while (entries.hasMoreElements()) {
+            ZipArchiveEntry source = entries.nextElement();
+
+            if (filter.test(source.getName())) {
+                int mode = source.getUnixMode();
+                ZipArchiveEntry entry = createEntry(source.getName(), source.getLastModifiedTime(), mode == 0 ? DEFAULT_PERMISSIONS : mode);
+
+                creator.addArchiveEntry(entry, () -> {
+                    try {
+                        return zipFile.getInputStream(source);
+                    } catch (IOException e) {
+                        throw Exceptions.propagate(e);
+                    }
+                });
+            }
+        }
+    }
+
+    private static String toHexString(MessageDigest digest) {
+        return String.format("%040x", new BigInteger(1, digest.digest()));
+    }
+
+    private static void update(MessageDigest digest, FileChannel channel, ByteBuffer buffer) {
+        try {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private static void write(InputStream in, FileTime lastModifiedTime, int mode, ZipArchiveOutputStream out, String path, long size) {
         try {
             ZipArchiveEntry entry = new ZipArchiveEntry(path);
             entry.setUnixMode(mode);
             entry.setLastModifiedTime(lastModifiedTime);
+
+            if (size != ArchiveEntry.SIZE_UNKNOWN) {
+                entry.setSize(size);
+            }
+
             out.putArchiveEntry(entry);
 
             if (in != null) {
-                ByteArrayPool.withByteArray(buffer -> {
+                ByteArrayPool.withByteArray(BUFFER_SIZE, buffer -> {
                     try {
                         int length;
                         while ((length = in.read(buffer)) != -1) {
@@ -271,4 +439,198 @@ public final class FileUtils {
         }
     }
 
+    private static void writeTo(ParallelScatterZipCreator creator, Path staging) throws IOException {
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(staging.toFile())) {
+            out.setUseZip64(Zip64Mode.AsNeeded);
+            creator.writeTo(out);
+        } catch (ExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    /**
+     * An {@link ExecutorService} view of a shared {@link Scheduler}.  Shutting the view down stops it accepting tasks, and {@link #shutdownNow()} cancels the tasks it submitted, without affecting
+     * the underlying {@link Scheduler}.
+     */
+    private static final class SchedulerExecutorService extends AbstractExecutorService {
+
+        private final Scheduler scheduler;
+
+        private final Disposable.Composite tasks = Disposables.composite();
+
+        private volatile boolean shutdown;
+
+        private SchedulerExecutorService(Scheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (this.shutdown || !this.tasks.add(this.scheduler.schedule(command))) {
+                throw new RejectedExecutionException("Executor has been shut down");
+            }
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return this.shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return this.shutdown;
+        }
+
+        @Override
+        public void shutdown() {
+            this.shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            this.shutdown = true;
+            this.tasks.dispose();
+            return Collections.emptyList();
+        }
+
+    }
+
+    private static final class ZipChunkProducer {
+
+        private static final int CAPACITY = 4;
+
+        private static final int CHUNK_SIZE = 64 * 1_024;
+
+        private static final Object END = new Object();
+
+        private final BlockingQueue<Object> chunks = new ArrayBlockingQueue<>(CAPACITY);
+
+        private final Disposable worker;
+
+        private volatile boolean cancelled;
+
+        private ZipChunkProducer(Path candidate, Predicate<String> filter) {
+            this.worker = Schedulers.elastic().schedule(() -> produce(candidate, filter));
+        }
+
+        private void cancel() {
+            this.cancelled = true;
+            this.worker.dispose();
+            this.chunks.clear();
+        }
+
+        private void next(SynchronousSink<byte[]> sink) {
+            try {
+                Object chunk = this.chunks.take();
+
+                if (chunk == END) {
+                    sink.complete();
+                } else if (chunk instanceof Throwable) {
+                    sink.error(Exceptions.unwrap((Throwable) chunk));
+                } else {
+                    sink.next((byte[]) chunk);
+                }
+            } catch (InterruptedException e) {
+                sink.error(e);
+            }
+        }
+
+        private void produce(Path candidate, Predicate<String> filter) {
+            try {
+                try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(new ChunkOutputStream())) {
+                    out.setUseZip64(Zip64Mode.AsNeeded);
+
+                    if (Files.isDirectory(candidate)) {
+                        compressFromDirectory(candidate, filter, out);
+                    } else {
+                        compressFromZip(candidate, filter, out);
+                    }
+                }
+
+                put(END);
+            } catch (Throwable t) {
+                if (!this.cancelled) {
+                    try {
+                        put(t);
+                    } catch (IOException e) {
+                        // Cancelled while reporting the error
+                    }
+                }
+            }
+        }
+
+        private void put(Object chunk) throws IOException {
+            try {
+                while (!this.cancelled) {
+                    if (this.chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            throw new InterruptedIOException("Compression cancelled");
+        }
+
+        private final class ChunkOutputStream extends OutputStream {
+
+            private byte[] buffer = new byte[CHUNK_SIZE];
+
+            private int position;
+
+            @Override
+            public void close() throws IOException {
+                flushChunk();
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                this.buffer[this.position++] = (byte) b;
+
+                if (this.position == this.buffer.length) {
+                    flushChunk();
+                }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    int length = Math.min(len, this.buffer.length - this.position);
+                    System.arraycopy(b, off, this.buffer, this.position, length);
+
+                    this.position += length;
+                    off += length;
+                    len -= length;
+
+                    if (this.position == this.buffer.length) {
+                        flushChunk();
+                    }
+                }
+            }
+
+            private void flushChunk() throws IOException {
+                if (this.position == 0) {
+                    return;
+                }
+
+                byte[] chunk = this.position == this.buffer.length ? this.buffer : Arrays.copyOf(this.buffer, this.position);
+                this.buffer = new byte[CHUNK_SIZE];
+                this.position = 0;
+
+                put(chunk);
+            }
+
+        }
+
+    }
+
 }
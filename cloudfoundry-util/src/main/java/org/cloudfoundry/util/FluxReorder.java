@@ -0,0 +1,325 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.util;
+
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxOperator;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Reorders the elements of a {@link Flux} within a bounded window.  Elements are held until the event-time watermark, the greatest timestamp seen less the allowed lateness, passes them, until no
+ * element has arrived for the allowed lateness, or until the window is full.  All state is confined to a single drain loop, so no locks are taken.
+ *
+ * @param <T> the type of the elements
+ */
+final class FluxReorder<T> extends FluxOperator<T, T> {
+
+    private final int capacity;
+
+    private final Comparator<? super T> comparator;
+
+    private final long lateness;
+
+    private final ToLongFunction<? super T> timestamp;
+
+    FluxReorder(Flux<T> source, Comparator<? super T> comparator, ToLongFunction<? super T> timestamp, Duration lateness, int capacity) {
+        super(source);
+        this.capacity = capacity;
+        this.comparator = comparator;
+        this.lateness = lateness.toNanos();
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public void subscribe(CoreSubscriber<? super T> actual) {
+        this.source.subscribe(new ReorderSubscriber<>(actual, this.comparator, this.timestamp, this.lateness, this.capacity, Schedulers.parallel()));
+    }
+
+    private static final class ReorderSubscriber<T> implements CoreSubscriber<T>, Subscription {
+
+        private final CoreSubscriber<? super T> actual;
+
+        private final int capacity;
+
+        private final PriorityQueue<T> heap;
+
+        private final Queue<T> inbox;
+
+        private final long lateness;
+
+        private final int limit;
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private final Scheduler scheduler;
+
+        private final ToLongFunction<? super T> timestamp;
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private final Scheduler.Worker worker;
+
+        private long arrivals;
+
+        private volatile boolean cancelled;
+
+        private volatile boolean done;
+
+        private Throwable error;
+
+        private volatile long idleArrivals = -1;
+
+        private long idleWatermark = Long.MIN_VALUE;
+
+        private long lastArrival;
+
+        private long maximumTimestamp = Long.MIN_VALUE;
+
+        private int produced;
+
+        private Subscription s;
+
+        private volatile boolean timerArmed;
+
+        private ReorderSubscriber(CoreSubscriber<? super T> actual, Comparator<? super T> comparator, ToLongFunction<? super T> timestamp, long lateness, int capacity, Scheduler scheduler) {
+            this.actual = actual;
+            this.capacity = capacity;
+            this.heap = new PriorityQueue<>(Math.min(capacity, 1024), comparator);
+            this.inbox = Queues.<T>get(capacity).get();
+            this.lateness = lateness;
+            this.limit = Math.max(1, capacity - (capacity >> 2));
+            this.scheduler = scheduler;
+            this.timestamp = timestamp;
+            this.worker = scheduler.createWorker();
+        }
+
+        @Override
+        public void cancel() {
+            if (this.cancelled) {
+                return;
+            }
+
+            this.cancelled = true;
+            this.s.cancel();
+            this.worker.dispose();
+
+            if (this.wip.getAndIncrement() == 0) {
+                clear();
+            }
+        }
+
+        @Override
+        public Context currentContext() {
+            return this.actual.currentContext();
+        }
+
+        @Override
+        public void onComplete() {
+            if (this.done) {
+                return;
+            }
+
+            this.done = true;
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (this.done) {
+                Operators.onErrorDropped(t, this.actual.currentContext());
+                return;
+            }
+
+            this.error = t;
+            this.done = true;
+            drain();
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (this.done) {
+                Operators.onNextDropped(t, this.actual.currentContext());
+                return;
+            }
+
+            if (!this.inbox.offer(t)) {
+                this.s.cancel();
+                onError(Operators.onOperatorError(this.s, new IllegalStateException("Received more elements than requested"), t, this.actual.currentContext()));
+                return;
+            }
+
+            drain();
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (Operators.validate(this.s, s)) {
+                this.s = s;
+                this.actual.onSubscribe(this);
+                s.request(this.capacity);
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (Operators.validate(n)) {
+                this.requested.accumulateAndGet(n, Operators::addCap);
+                drain();
+            }
+        }
+
+        private void arm() {
+            if (this.timerArmed || this.heap.isEmpty() || this.idleWatermark >= this.maximumTimestamp) {
+                return;
+            }
+
+            this.timerArmed = true;
+            long arrivals = this.arrivals;
+            long delay = Math.max(0, this.lateness - (this.scheduler.now(TimeUnit.NANOSECONDS) - this.lastArrival));
+
+            try {
+                this.worker.schedule(() -> {
+                    this.idleArrivals = arrivals;
+                    this.timerArmed = false;
+                    drain();
+                }, delay, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                this.timerArmed = false;
+            }
+        }
+
+        private void clear() {
+            this.inbox.clear();
+            this.heap.clear();
+        }
+
+        private void drain() {
+            if (this.wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+
+            for (; ; ) {
+                if (this.cancelled) {
+                    clear();
+                    return;
+                }
+
+                boolean d = this.done;
+
+                int held = this.heap.size();
+
+                T t;
+                while ((t = this.inbox.poll()) != null) {
+                    this.heap.offer(t);
+                    this.maximumTimestamp = Math.max(this.maximumTimestamp, this.timestamp.applyAsLong(t));
+                }
+
+                if (this.heap.size() != held) {
+                    this.arrivals++;
+                    this.lastArrival = this.scheduler.now(TimeUnit.NANOSECONDS);
+                } else if (this.idleArrivals == this.arrivals) {
+                    this.idleWatermark = this.maximumTimestamp;
+                }
+
+                long watermark = Math.max(getEventWatermark(), this.idleWatermark);
+                long r = this.requested.get();
+                long e = 0;
+
+                while (e != r) {
+                    if (this.cancelled) {
+                        clear();
+                        return;
+                    }
+
+                    T head = this.heap.peek();
+
+                    if (head == null || !(d || this.heap.size() >= this.capacity || this.timestamp.applyAsLong(head) <= watermark)) {
+                        break;
+                    }
+
+                    this.heap.poll();
+                    this.actual.onNext(head);
+                    e++;
+
+                    if (!d && ++this.produced == this.limit) {
+                        this.s.request(this.produced);
+                        this.produced = 0;
+                    }
+                }
+
+                if (d && this.heap.isEmpty()) {
+                    terminate();
+                    return;
+                }
+
+                if (e != 0 && r != Long.MAX_VALUE) {
+                    this.requested.addAndGet(-e);
+                }
+
+                if (!d) {
+                    if (this.produced != 0) {
+                        this.s.request(this.produced);
+                        this.produced = 0;
+                    }
+
+                    arm();
+                }
+
+                missed = this.wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private long getEventWatermark() {
+            long watermark = this.maximumTimestamp - this.lateness;
+            return watermark > this.maximumTimestamp ? Long.MIN_VALUE : watermark;
+        }
+
+        private void terminate() {
+            this.worker.dispose();
+            Throwable error = this.error;
+
+            if (error != null) {
+                this.actual.onError(error);
+            } else {
+                this.actual.onComplete();
+            }
+        }
+
+    }
+
+}
@@ -16,10 +16,14 @@
 
 package org.cloudfoundry.util;
 
+import org.cloudfoundry.AbstractCloudFoundryException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 /**
@@ -28,11 +32,18 @@ import java.util.function.Function;
  */
 public final class PaginationUtils {
 
+    private static final PaginationStrategy DEFAULT_STRATEGY = PaginationStrategy.builder().build();
+
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
     private PaginationUtils() {
     }
 
     /**
-     * Generate the stream of resources accumulated from a series of responses obtained from the page supplier.
+     * Generate the stream of resources accumulated from a series of responses obtained from the page supplier.  Pages are requested using the {@link PaginationStrategy} in the subscriber's
+     * {@link reactor.util.context.Context}, if any.
      *
      * @param pageSupplier a function from integers to {@link Mono}s of {@link org.cloudfoundry.client.v2.PaginatedResponse}s.
      * @param <T>          the type of resource in the list on each {@link org.cloudfoundry.client.v2.PaginatedResponse}.
@@ -42,14 +53,37 @@ public final class PaginationUtils {
     public static <T extends org.cloudfoundry.client.v2.Resource<?>, U extends org.cloudfoundry.client.v2.PaginatedResponse<T>> Flux<T> requestClientV2Resources(
         Function<Integer, Mono<U>> pageSupplier) {
 
-        return pageSupplier
-            .apply(1)
-            .flatMapMany(requestClientV2AdditionalPages(pageSupplier))
-            .flatMap(ResourceUtils::getResources);
+        return Mono.subscriberContext()
+            .flatMapMany(context -> requestClientV2Resources(pageSupplier, context.getOrDefault(PaginationStrategy.class, DEFAULT_STRATEGY)));
+    }
+
+    /**
+     * Generate the stream of resources accumulated from a series of responses obtained from the page supplier.  Resources are emitted in page order as soon as each page, and all pages before it,
+     * have been received.  If the strategy allows retries, page requests that are rejected because the server is rate limiting or unavailable are retried with a backoff shared by
+     * all pages.
+     *
+     * @param pageSupplier a function from integers to {@link Mono}s of {@link org.cloudfoundry.client.v2.PaginatedResponse}s.
+     * @param strategy     the strategy for requesting pages
+     * @param <T>          the type of resource in the list on each {@link org.cloudfoundry.client.v2.PaginatedResponse}.
+     * @param <U>          the type of {@link org.cloudfoundry.client.v2.PaginatedResponse}.
+     * @return a stream of <code>T</code> objects.
+     */
+    public static <T extends org.cloudfoundry.client.v2.Resource<?>, U extends org.cloudfoundry.client.v2.PaginatedResponse<T>> Flux<T> requestClientV2Resources(
+        Function<Integer, Mono<U>> pageSupplier, PaginationStrategy strategy) {
+
+        return Flux.defer(() -> {
+            Function<Integer, Mono<U>> throttledPageSupplier = new Throttle(strategy).apply(pageSupplier);
+
+            return throttledPageSupplier
+                .apply(1)
+                .flatMapMany(requestClientV2AdditionalPages(throttledPageSupplier, strategy.getConcurrency()))
+                .concatMap(ResourceUtils::getResources);
+        });
     }
 
     /**
-     * Generate the stream of resources accumulated from a series of responses obtained from the page supplier.
+     * Generate the stream of resources accumulated from a series of responses obtained from the page supplier.  Pages are requested using the {@link PaginationStrategy} in the subscriber's
+     * {@link reactor.util.context.Context}, if any.
      *
      * @param pageSupplier a function from integers to {@link Mono}s of {@link org.cloudfoundry.client.v3.PaginatedResponse}s.
      * @param <T>          the type of resource in the list on each {@link org.cloudfoundry.client.v3.PaginatedResponse}.
@@ -58,14 +92,36 @@ public final class PaginationUtils {
      */
     @SuppressWarnings("rawtypes")
     public static <T, U extends org.cloudfoundry.client.v3.PaginatedResponse<T>> Flux<T> requestClientV3Resources(Function<Integer, Mono<U>> pageSupplier) {
-        return pageSupplier
-            .apply(1)
-            .flatMapMany(requestClientV3AdditionalPages(pageSupplier))
-            .flatMapIterable(org.cloudfoundry.client.v3.PaginatedResponse::getResources);
+        return Mono.subscriberContext()
+            .flatMapMany(context -> requestClientV3Resources(pageSupplier, context.getOrDefault(PaginationStrategy.class, DEFAULT_STRATEGY)));
     }
 
     /**
-     * Generate the stream of resources accumulated from a series of responses obtained from the page supplier.
+     * Generate the stream of resources accumulated from a series of responses obtained from the page supplier.  Resources are emitted in page order as soon as each page, and all pages before it,
+     * have been received.  If the strategy allows retries, page requests that are rejected because the server is rate limiting or unavailable are retried with a backoff shared by
+     * all pages.
+     *
+     * @param pageSupplier a function from integers to {@link Mono}s of {@link org.cloudfoundry.client.v3.PaginatedResponse}s.
+     * @param strategy     the strategy for requesting pages
+     * @param <T>          the type of resource in the list on each {@link org.cloudfoundry.client.v3.PaginatedResponse}.
+     * @param <U>          the type of {@link org.cloudfoundry.client.v3.PaginatedResponse}.
+     * @return a stream of <code>T</code> objects.
+     */
+    @SuppressWarnings("rawtypes")
+    public static <T, U extends org.cloudfoundry.client.v3.PaginatedResponse<T>> Flux<T> requestClientV3Resources(Function<Integer, Mono<U>> pageSupplier, PaginationStrategy strategy) {
+        return Flux.defer(() -> {
+            Function<Integer, Mono<U>> throttledPageSupplier = new Throttle(strategy).apply(pageSupplier);
+
+            return throttledPageSupplier
+                .apply(1)
+                .flatMapMany(requestClientV3AdditionalPages(throttledPageSupplier, strategy.getConcurrency()))
+                .concatMapIterable(org.cloudfoundry.client.v3.PaginatedResponse::getResources);
+        });
+    }
+
+    /**
+     * Generate the stream of resources accumulated from a series of responses obtained from the page supplier.  Pages are requested using the {@link PaginationStrategy} in the subscriber's
+     * {@link reactor.util.context.Context}, if any.
      *
      * @param pageSupplier a function from integers to {@link Mono}s of {@link org.cloudfoundry.uaa.PaginatedResponse}s.
      * @param <T>          the type of resource in the list on each {@link org.cloudfoundry.uaa.PaginatedResponse}.
@@ -74,45 +130,117 @@ public final class PaginationUtils {
      */
     @SuppressWarnings("rawtypes")
     public static <T, U extends org.cloudfoundry.uaa.PaginatedResponse<T>> Flux<T> requestUaaResources(Function<Integer, Mono<U>> pageSupplier) {
-        return pageSupplier
-            .apply(1)
-            .flatMapMany(requestUaaAdditionalPages(pageSupplier))
-            .flatMapIterable(org.cloudfoundry.uaa.PaginatedResponse::getResources);
+        return Mono.subscriberContext()
+            .flatMapMany(context -> requestUaaResources(pageSupplier, context.getOrDefault(PaginationStrategy.class, DEFAULT_STRATEGY)));
     }
 
-    private static <T> Function<T, Flux<T>> requestAdditionalPages(Function<Integer, Mono<T>> pageSupplier, Function<T, Integer> totalPagesSupplier) {
+    /**
+     * Generate the stream of resources accumulated from a series of responses obtained from the page supplier.  Resources are emitted in page order as soon as each page, and all pages before it,
+     * have been received.  If the strategy allows retries, page requests that are rejected because the server is rate limiting or unavailable are retried with a backoff shared by
+     * all pages.
+     *
+     * @param pageSupplier a function from integers to {@link Mono}s of {@link org.cloudfoundry.uaa.PaginatedResponse}s.
+     * @param strategy     the strategy for requesting pages
+     * @param <T>          the type of resource in the list on each {@link org.cloudfoundry.uaa.PaginatedResponse}.
+     * @param <U>          the type of {@link org.cloudfoundry.uaa.PaginatedResponse}.
+     * @return a stream of <code>T</code> objects.
+     */
+    @SuppressWarnings("rawtypes")
+    public static <T, U extends org.cloudfoundry.uaa.PaginatedResponse<T>> Flux<T> requestUaaResources(Function<Integer, Mono<U>> pageSupplier, PaginationStrategy strategy) {
+        return Flux.defer(() -> {
+            Function<Integer, Mono<U>> throttledPageSupplier = new Throttle(strategy).apply(pageSupplier);
+
+            return throttledPageSupplier
+                .apply(1)
+                .flatMapMany(requestUaaAdditionalPages(throttledPageSupplier, strategy.getConcurrency()))
+                .concatMapIterable(org.cloudfoundry.uaa.PaginatedResponse::getResources);
+        });
+    }
+
+    private static boolean isRateLimited(Throwable t) {
+        if (!(t instanceof AbstractCloudFoundryException)) {
+            return false;
+        }
+
+        int statusCode = ((AbstractCloudFoundryException) t).getStatusCode();
+        return TOO_MANY_REQUESTS == statusCode || SERVICE_UNAVAILABLE == statusCode;
+    }
+
+    private static <T> Function<T, Flux<T>> requestAdditionalPages(Function<Integer, Mono<T>> pageSupplier, Function<T, Integer> totalPagesSupplier, int concurrency) {
         return response -> {
             Integer totalPages = Optional.ofNullable(totalPagesSupplier.apply(response)).orElse(1);
 
             return Flux
                 .range(2, totalPages - 1)
-                .flatMap(pageSupplier)
-                .startWith(response)
-                .buffer()
-                .flatMapIterable(d -> d);
+                .flatMapSequential(pageSupplier, concurrency)
+                .startWith(response);
         };
     }
 
-    private static <T extends org.cloudfoundry.client.v2.PaginatedResponse<?>> Function<T, Flux<T>> requestClientV2AdditionalPages(Function<Integer, Mono<T>> pageSupplier) {
-        return requestAdditionalPages(pageSupplier, response -> response.getTotalPages());
+    private static <T extends org.cloudfoundry.client.v2.PaginatedResponse<?>> Function<T, Flux<T>> requestClientV2AdditionalPages(Function<Integer, Mono<T>> pageSupplier, int concurrency) {
+        return requestAdditionalPages(pageSupplier, response -> response.getTotalPages(), concurrency);
     }
 
-    private static <T extends org.cloudfoundry.client.v3.PaginatedResponse<?>> Function<T, Flux<T>> requestClientV3AdditionalPages(Function<Integer, Mono<T>> pageSupplier) {
-        return requestAdditionalPages(pageSupplier, response -> response.getPagination().getTotalPages());
+    private static <T extends org.cloudfoundry.client.v3.PaginatedResponse<?>> Function<T, Flux<T>> requestClientV3AdditionalPages(Function<Integer, Mono<T>> pageSupplier, int concurrency) {
+        return requestAdditionalPages(pageSupplier, response -> response.getPagination().getTotalPages(), concurrency);
     }
 
-    private static <T extends org.cloudfoundry.uaa.PaginatedResponse<?>> Function<T, Flux<T>> requestUaaAdditionalPages(Function<Integer, Mono<T>> pageSupplier) {
+    private static <T extends org.cloudfoundry.uaa.PaginatedResponse<?>> Function<T, Flux<T>> requestUaaAdditionalPages(Function<Integer, Mono<T>> pageSupplier, int concurrency) {
         return response -> {
             Integer totalPages = (response.getTotalResults() - 1) / response.getItemsPerPage() + 1;
 
             return Flux
                 .range(1, totalPages - 1)
                 .map(page -> 1 + (page * response.getItemsPerPage()))
-                .flatMap(pageSupplier)
-                .startWith(response)
-                .buffer()
-                .flatMapIterable(d -> d);
+                .flatMapSequential(pageSupplier, concurrency)
+                .startWith(response);
         };
     }
 
+    private static final class Throttle {
+
+        private final AtomicInteger consecutiveBackoffs = new AtomicInteger();
+
+        private final AtomicLong notBefore = new AtomicLong(System.nanoTime());
+
+        private final PaginationStrategy strategy;
+
+        private Throttle(PaginationStrategy strategy) {
+            this.strategy = strategy;
+        }
+
+        private <T> Function<Integer, Mono<T>> apply(Function<Integer, Mono<T>> pageSupplier) {
+            return page -> request(pageSupplier, page, 0);
+        }
+
+        private void backoff() {
+            int exponent = this.consecutiveBackoffs.getAndIncrement();
+            long minimum = this.strategy.getMinimumBackoff().toNanos();
+            long maximum = this.strategy.getMaximumBackoff().toNanos();
+
+            long backoff = exponent < Long.numberOfLeadingZeros(minimum) - 1 ? Math.min(minimum << exponent, maximum) : maximum;
+            long until = System.nanoTime() + backoff;
+
+            this.notBefore.accumulateAndGet(until, (current, candidate) -> candidate - current > 0 ? candidate : current);
+        }
+
+        private Mono<Void> delay() {
+            return Mono.defer(() -> {
+                long remaining = this.notBefore.get() - System.nanoTime();
+                return remaining > 0 ? Mono.delay(Duration.ofNanos(remaining)).then() : Mono.empty();
+            });
+        }
+
+        private <T> Mono<T> request(Function<Integer, Mono<T>> pageSupplier, Integer page, int attempt) {
+            return delay()
+                .then(Mono.defer(() -> pageSupplier.apply(page)))
+                .doOnSuccess(response -> this.consecutiveBackoffs.set(0))
+                .onErrorResume(t -> isRateLimited(t) && attempt < this.strategy.getMaximumRetries(), t -> {
+                    backoff();
+                    return request(pageSupplier, page, attempt + 1);
+                });
+        }
+
+    }
+
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics describing the resource matching performed by {@link ResourceMatchingUtils}.  Unless an instance is placed in the subscriber's {@link reactor.util.context.Context} under the
+ * {@code ResourceMatchingMetrics.class} key, matching is recorded in the instance returned by {@link ResourceMatchingUtils#getMetrics()}, which is shared by every caller.
+ */
+public final class ResourceMatchingMetrics {
+
+    private final LongAdder matchedBytes = new LongAdder();
+
+    private final LongAdder matchedCount = new LongAdder();
+
+    private final LongAdder requestCount = new LongAdder();
+
+    private final LongAdder skippedCount = new LongAdder();
+
+    /**
+     * Returns the total size of the files that the Cloud Controller already had and therefore did not need to be uploaded
+     *
+     * @return the total size of the matched files
+     */
+    public long getMatchedBytes() {
+        return this.matchedBytes.sum();
+    }
+
+    /**
+     * Returns the number of files that the Cloud Controller already had
+     *
+     * @return the number of matched files
+     */
+    public long getMatchedCount() {
+        return this.matchedCount.sum();
+    }
+
+    /**
+     * Returns the number of resource match requests made
+     *
+     * @return the number of resource match requests
+     */
+    public long getRequestCount() {
+        return this.requestCount.sum();
+    }
+
+    /**
+     * Returns the number of files that were not sent for matching because their size is outside of the range the Cloud Controller matches
+     *
+     * @return the number of skipped files
+     */
+    public long getSkippedCount() {
+        return this.skippedCount.sum();
+    }
+
+    void matched(long size) {
+        this.matchedBytes.add(size);
+        this.matchedCount.increment();
+    }
+
+    void request() {
+        this.requestCount.increment();
+    }
+
+    void skipped() {
+        this.skippedCount.increment();
+    }
+
+}
@@ -16,7 +16,6 @@
 
 package org.cloudfoundry.util;
 
-import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.cloudfoundry.client.CloudFoundryClient;
 import org.cloudfoundry.client.v2.resourcematch.ListMatchingResourcesRequest;
@@ -33,86 +32,155 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Enumeration;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * Utilities for matching resources
  */
 public final class ResourceMatchingUtils {
 
+    private static final ResourceMatchingStrategy DEFAULT_STRATEGY = ResourceMatchingStrategy.builder().build();
+
+    private static final int HASHING_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
     private static final Logger LOGGER = LoggerFactory.getLogger("cloudfoundry-client.resource-matching");
 
+    private static final ResourceMatchingMetrics METRICS = new ResourceMatchingMetrics();
+
     private ResourceMatchingUtils() {
     }
 
+    /**
+     * Returns the metadata of the files in an application that the Cloud Controller already has a copy of.  If the subscriber's {@link reactor.util.context.Context} contains a
+     * {@link FileHashCache}, it is used to avoid rehashing unchanged files.  If it contains a {@link ResourceMatchingStrategy}, it controls how files are batched into match requests.  If it
+     * contains {@link ResourceMatchingMetrics}, matching is recorded there rather than in the shared {@link #getMetrics() metrics}.
+     *
+     * @param cloudFoundryClient the client to use
+     * @param application        the application directory or archive
+     * @return the metadata of the matched files
+     */
     public static Mono<List<ArtifactMetadata>> getMatchedResources(CloudFoundryClient cloudFoundryClient, Path application) {
-        return (Files.isDirectory(application) ? getArtifactMetadataFromDirectory(application) : getArtifactMetadataFromZip(application))
-            .collectMap(ArtifactMetadata::getHash)
-            .flatMapMany(artifactMetadatas -> requestListMatchingResources(cloudFoundryClient, artifactMetadatas.values())
-                .flatMapIterable(ListMatchingResourcesResponse::getResources)
-                .map(resource -> artifactMetadatas.get(resource.getHash())))
-            .collectList()
-            .doOnNext(matched -> LOGGER.debug("{} resources matched totaling {}", matched.size(), SizeUtils.asIbi(matched.stream()
-                .mapToInt(ArtifactMetadata::getSize)
-                .sum())))
-            .subscribeOn(Schedulers.elastic());
+        return Mono.subscriberContext()
+            .flatMap(context -> getMatchedResources(cloudFoundryClient, application, context.<FileHashCache>getOrEmpty(FileHashCache.class),
+                context.getOrDefault(ResourceMatchingMetrics.class, METRICS), context.getOrDefault(ResourceMatchingStrategy.class, DEFAULT_STRATEGY)));
+    }
+
+    /**
+     * Returns the metadata of the files in an application that the Cloud Controller already has a copy of, using a {@link FileHashCache} to avoid rehashing unchanged files.  If the subscriber's
+     * {@link reactor.util.context.Context} contains a {@link ResourceMatchingStrategy}, it controls how files are batched into match requests.  If it contains {@link ResourceMatchingMetrics},
+     * matching is recorded there rather than in the shared {@link #getMetrics() metrics}.
+     *
+     * @param cloudFoundryClient the client to use
+     * @param application        the application directory or archive
+     * @param hashCache          the cache of file hashes
+     * @return the metadata of the matched files
+     */
+    public static Mono<List<ArtifactMetadata>> getMatchedResources(CloudFoundryClient cloudFoundryClient, Path application, FileHashCache hashCache) {
+        return Mono.subscriberContext()
+            .flatMap(context -> getMatchedResources(cloudFoundryClient, application, Optional.of(hashCache), context.getOrDefault(ResourceMatchingMetrics.class, METRICS),
+                context.getOrDefault(ResourceMatchingStrategy.class, DEFAULT_STRATEGY)));
+    }
+
+    /**
+     * Returns the metrics shared by every resource match that does not provide its own {@link ResourceMatchingMetrics}
+     *
+     * @return the shared resource matching metrics
+     */
+    public static ResourceMatchingMetrics getMetrics() {
+        return METRICS;
     }
 
-    private static Flux<ArtifactMetadata> getArtifactMetadataFromDirectory(Path application) {
+    private static Flux<ArtifactMetadata> getArtifactMetadataFromDirectory(Path application, Optional<FileHashCache> hashCache) {
         return Flux
             .defer(() -> {
-                try {
-                    return Flux.fromStream(Files.walk(application));
-                } catch (IOException e) {
-                    throw Exceptions.propagate(e);
-                }
-            })
-            .filter(path -> !Files.isDirectory(path))
-            .map(path -> new ArtifactMetadata(FileUtils.hash(path), FileUtils.getRelativePathName(application, path), FileUtils.permissions(path), FileUtils.size(path)));
+                Optional<FileHashCache.Index> index = hashCache.map(cache -> cache.open(application));
+                Function<Path, String> hasher = index.<Function<Path, String>>map(i -> i::hash).orElse(FileUtils::hash);
+
+                return Flux
+                    .defer(() -> {
+                        try {
+                            return Flux.fromStream(Files.walk(application));
+                        } catch (IOException e) {
+                            throw Exceptions.propagate(e);
+                        }
+                    })
+                    .filter(path -> !Files.isDirectory(path))
+                    .parallel(HASHING_PARALLELISM)
+                    .runOn(Schedulers.elastic(), 1)
+                    .map(path -> new ArtifactMetadata(hasher.apply(path), FileUtils.getRelativePathName(application, path), FileUtils.permissions(path), FileUtils.size(path)))
+                    .sequential()
+                    .doOnComplete(() -> index.ifPresent(FileHashCache.Index::save));
+            });
     }
 
     private static Flux<ArtifactMetadata> getArtifactMetadataFromZip(Path application) {
-        List<ArtifactMetadata> artifactMetadatas = new ArrayList<>();
-
-        try (ZipFile zipFile = new ZipFile(application.toFile())) {
-            Enumeration<ZipArchiveEntry> entries = zipFile.getEntries();
-
-            while (entries.hasMoreElements()) {
-                ZipArchiveEntry entry = entries.nextElement();
-
-                if (!entry.isDirectory()) {
+        return Flux
+            .using(() -> new ZipFile(application.toFile()), zipFile -> Flux
+                .fromIterable(Collections.list(zipFile.getEntries()))
+                .filter(entry -> !entry.isDirectory())
+                .parallel(HASHING_PARALLELISM)
+                .runOn(Schedulers.elastic(), 1)
+                .map(entry -> {
                     try (InputStream in = zipFile.getInputStream(entry)) {
                         String hash = FileUtils.hash(in);
                         String path = entry.getName();
                         String permissions = FileUtils.permissions(entry.getUnixMode());
-                        int size = (int) entry.getSize();
+                        long size = entry.getSize();
 
-                        artifactMetadatas.add(new ArtifactMetadata(hash, path, permissions, size));
+                        return new ArtifactMetadata(hash, path, permissions, size);
+                    } catch (IOException e) {
+                        throw Exceptions.propagate(e);
                     }
+                })
+                .sequential(), ZipFile::closeQuietly);
+    }
 
-                }
-            }
-        } catch (IOException e) {
-            throw Exceptions.propagate(e);
+    private static Mono<List<ArtifactMetadata>> getMatchedResources(CloudFoundryClient cloudFoundryClient, Path application, Optional<FileHashCache> hashCache,
+        ResourceMatchingMetrics metrics, ResourceMatchingStrategy strategy) {
+
+        return (Files.isDirectory(application) ? getArtifactMetadataFromDirectory(application, hashCache) : getArtifactMetadataFromZip(application))
+            .collectMap(ArtifactMetadata::getHash)
+            .flatMapMany(artifactMetadatas -> Flux.fromIterable(artifactMetadatas.values())
+                .filter(artifactMetadata -> isMatchable(artifactMetadata, metrics, strategy))
+                .buffer(strategy.getBatchSize())
+                .flatMap(batch -> requestListMatchingResources(cloudFoundryClient, batch, metrics), strategy.getConcurrency())
+                .flatMapIterable(ListMatchingResourcesResponse::getResources)
+                .map(resource -> artifactMetadatas.get(resource.getHash()))
+                .doOnNext(artifactMetadata -> metrics.matched(artifactMetadata.getSize())))
+            .collectList()
+            .doOnNext(matched -> LOGGER.debug("{} resources matched totaling {}", matched.size(), SizeUtils.asIbi(matched.stream()
+                .mapToLong(ArtifactMetadata::getSize)
+                .sum())))
+            .subscribeOn(Schedulers.elastic());
+    }
+
+    private static boolean isMatchable(ArtifactMetadata artifactMetadata, ResourceMatchingMetrics metrics, ResourceMatchingStrategy strategy) {
+        if (artifactMetadata.getSize() < strategy.getMinimumSize() || artifactMetadata.getSize() > strategy.getMaximumSize()) {
+            metrics.skipped();
+            return false;
         }
 
-        return Flux.fromIterable(artifactMetadatas);
+        return true;
     }
 
-    private static Mono<ListMatchingResourcesResponse> requestListMatchingResources(CloudFoundryClient cloudFoundryClient, Collection<ArtifactMetadata> artifactMetadatas) {
+    private static Mono<ListMatchingResourcesResponse> requestListMatchingResources(CloudFoundryClient cloudFoundryClient, Collection<ArtifactMetadata> artifactMetadatas,
+        ResourceMatchingMetrics metrics) {
+
         ListMatchingResourcesRequest request = artifactMetadatas.stream()
             .reduce(ListMatchingResourcesRequest.builder(), (builder, artifactMetadata) -> builder.resource(Resource.builder()
                 .hash(artifactMetadata.getHash())
                 .mode(artifactMetadata.getPermissions())
-                .size(artifactMetadata.getSize())
+                .longSize(artifactMetadata.getSize())
                 .build()), (a, b) -> a.addAllResources(b.build().getResources()))
             .build();
 
         return cloudFoundryClient.resourceMatch()
-            .list(request);
+            .list(request)
+            .doOnSubscribe(subscription -> metrics.request());
     }
 
     /**
@@ -126,7 +194,7 @@ public final class ResourceMatchingUtils {
 
         private final String permissions;
 
-        private final int size;
+        private final long size;
 
         /**
          * Creates a new instance
@@ -136,7 +204,7 @@ public final class ResourceMatchingUtils {
          * @param permissions the UNIX permissions of the artifact
          * @param size        the size of the artifact
          */
-        public ArtifactMetadata(String hash, String path, String permissions, int size) {
+        public ArtifactMetadata(String hash, String path, String permissions, long size) {
             this.hash = hash;
             this.path = path;
             this.permissions = permissions;
@@ -176,7 +244,7 @@ public final class ResourceMatchingUtils {
          *
          * @return the size of the artifact
          */
-        public int getSize() {
+        public long getSize() {
             return this.size;
         }
 
@@ -16,75 +16,63 @@
 
 package org.cloudfoundry.util;
 
-import reactor.core.Disposable;
-import reactor.core.publisher.DirectProcessor;
 import reactor.core.publisher.Flux;
 import reactor.util.function.Tuple2;
 
 import java.time.Duration;
-import java.time.Instant;
-import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.List;
-import java.util.PriorityQueue;
-import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 /**
  * Utilities for sorting
  */
 public final class SortingUtils {
 
+    private static final int TIMESPAN_CAPACITY = 10_000;
+
     private SortingUtils() {
     }
 
     /**
-     * Sorts the elements of a {@link Flux} within a sliding time window.  This sorter should be used when element order may be scrambled, but that scrambling has a certain 'temporal locality' to it.
-     * This assumption means that sorting can be limited to elements that arrive temporally close to one another without risking a latecomer being sorted incorrectly.
+     * Sorts the elements of a {@link Flux} within a bounded, event-time window.  This sorter should be used when element order may be scrambled, but that scrambling has a certain 'temporal locality'
+     * to it.  An element is emitted once the greatest timestamp seen is more than {@code lateness} beyond its own, once no element has arrived for {@code lateness}, or once {@code capacity}
+     * elements are held.  No more than {@code capacity} elements are ever requested from the source ahead of downstream demand, and an error from the source is delayed until the held
+     * elements have been emitted.
      *
      * @param comparator a {@link Comparator} to use when sorting the elements within the window
-     * @param timespan   the duration of the 'temporal locality'
+     * @param timestamp  a function returning the timestamp of an element, in nanoseconds
+     * @param lateness   how late an element may arrive and still be sorted correctly
+     * @param capacity   the maximum number of elements held in the window
      * @param <T>        The type of the elements to be sorted
      * @return a {@link Flux} providing the sorted elements
      */
-    public static <T> Function<Flux<T>, Flux<T>> timespan(Comparator<T> comparator, Duration timespan) {
-        return source -> {
-            Queue<Tuple2<Long, T>> accumulator = new PriorityQueue<>((o1, o2) -> comparator.compare(o1.getT2(), o2.getT2()));
-
-            Object monitor = new Object();
-
-            DirectProcessor<Void> d = DirectProcessor.create();
-
-            Disposable disposable = source
-                .timestamp()
-                .subscribe(item -> {
-                    synchronized (monitor) {
-                        accumulator.add(item);
-                    }
-                }, d::onError, d::onComplete);
-
-            return Flux
-                .interval(timespan)
-                .takeUntilOther(d)
-                .flatMap(n -> getItems(accumulator, monitor, timespan), null, () -> getItems(accumulator, monitor, Duration.ZERO))
-                .doOnCancel(disposable::dispose);
-        };
-    }
-
-    private static <T> Flux<T> getItems(Queue<Tuple2<Long, T>> accumulator, Object monitor, Duration timespan) {
-        List<T> items = new ArrayList<>();
-
-        synchronized (monitor) {
-            while (isBefore(accumulator.peek(), timespan)) {
-                items.add(accumulator.remove().getT2());
-            }
+    public static <T> Function<Flux<T>, Flux<T>> reorder(Comparator<? super T> comparator, ToLongFunction<? super T> timestamp, Duration lateness, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
         }
 
-        return Flux.fromIterable(items);
+        return source -> new FluxReorder<>(source, comparator, timestamp, lateness, capacity);
     }
 
-    private static <T> boolean isBefore(Tuple2<Long, T> candidate, Duration timespan) {
-        return candidate != null && (Duration.ZERO == timespan || Instant.ofEpochMilli(candidate.getT1()).isBefore(Instant.now().minus(timespan)));
+    /**
+     * Sorts the elements of a {@link Flux} within a sliding time window.  This sorter should be used when element order may be scrambled, but that scrambling has a certain 'temporal locality' to it.
+     * This assumption means that sorting can be limited to elements that arrive temporally close to one another without risking a latecomer being sorted incorrectly.  Each element is timestamped
+     * with its arrival time and is emitted once it has been held for {@code timespan}.
+     *
+     * @param comparator a {@link Comparator} to use when sorting the elements within the window
+     * @param timespan   the duration of the 'temporal locality'
+     * @param <T>        The type of the elements to be sorted
+     * @return a {@link Flux} providing the sorted elements
+     * @deprecated use {@link #reorder(Comparator, ToLongFunction, Duration, int)}, which orders elements by their own timestamps
+     */
+    @Deprecated
+    public static <T> Function<Flux<T>, Flux<T>> timespan(Comparator<T> comparator, Duration timespan) {
+        return source -> source
+            .timestamp()
+            .transform(SortingUtils.<Tuple2<Long, T>>reorder((o1, o2) -> comparator.compare(o1.getT2(), o2.getT2()), t -> TimeUnit.MILLISECONDS.toNanos(t.getT1()), timespan, TIMESPAN_CAPACITY))
+            .map(Tuple2::getT2);
     }
 
 }
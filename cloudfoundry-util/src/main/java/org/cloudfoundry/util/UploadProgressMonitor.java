@@ -0,0 +1,52 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.util;
+
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * Reports the progress of the uploads made by a subscription.  A monitor can be placed in the Reactor {@link reactor.util.context.Context} of a subscription under the
+ * {@code UploadProgressMonitor.class} key, and progress observed by subscribing to {@link #getProgress()}.
+ */
+public final class UploadProgressMonitor {
+
+    private final DirectProcessor<UploadProgress> processor = DirectProcessor.create();
+
+    private final FluxSink<UploadProgress> sink = this.processor.sink();
+
+    /**
+     * Returns the progress of uploads.  Progress is only delivered to current subscribers, and a slow subscriber only receives the latest progress.
+     *
+     * @return the progress of uploads
+     */
+    public Flux<UploadProgress> getProgress() {
+        return this.processor
+            .onBackpressureLatest();
+    }
+
+    /**
+     * Reports the progress of an upload
+     *
+     * @param progress the progress of an upload
+     */
+    public void onProgress(UploadProgress progress) {
+        this.sink.next(progress);
+    }
+
+}
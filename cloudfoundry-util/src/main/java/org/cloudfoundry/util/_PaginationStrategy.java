@@ -0,0 +1,80 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.util;
+
+import org.immutables.value.Value;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+
+/**
+ * Configuration of how {@link PaginationUtils} requests the pages of a paginated resource.  A strategy can be passed explicitly or placed in the Reactor {@link reactor.util.context.Context} of a
+ * subscription under the {@code PaginationStrategy.class} key, in which case it applies to every paginated request made within that subscription.
+ */
+@Value.Immutable
+abstract class _PaginationStrategy {
+
+    @Value.Check
+    public final void check() {
+        if (getConcurrency() < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+
+        if (getMaximumBackoff().compareTo(getMinimumBackoff()) < 0) {
+            throw new IllegalArgumentException("Maximum backoff must not be less than minimum backoff");
+        }
+
+        if (getMaximumRetries() < 0) {
+            throw new IllegalArgumentException("Maximum retries must not be negative");
+        }
+    }
+
+    /**
+     * The maximum number of pages to request concurrently.  Pages are always emitted in order, regardless of this value.
+     */
+    @Value.Default
+    public int getConcurrency() {
+        return Queues.SMALL_BUFFER_SIZE;
+    }
+
+    /**
+     * The maximum delay before retrying a page request that was rate limited
+     */
+    @Value.Default
+    public Duration getMaximumBackoff() {
+        return Duration.ofSeconds(30);
+    }
+
+    /**
+     * The maximum number of times a single page request is retried after being rate limited.  Defaults to {@code 0}, so that rate limiting errors are propagated unless retries are explicitly
+     * enabled.
+     */
+    @Value.Default
+    public int getMaximumRetries() {
+        return 0;
+    }
+
+    /**
+     * The initial delay before retrying a page request that was rate limited.  The delay doubles with every consecutive rate limited response and is shared by all page requests of a resource so
+     * that the effective request rate drops while the server is under pressure.
+     */
+    @Value.Default
+    public Duration getMinimumBackoff() {
+        return Duration.ofMillis(500);
+    }
+
+}
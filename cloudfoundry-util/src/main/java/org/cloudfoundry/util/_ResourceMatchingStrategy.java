@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.util;
+
+import org.immutables.value.Value;
+
+/**
+ * Configuration of how {@link ResourceMatchingUtils} asks the Cloud Controller which files it already has.  A strategy can be placed in the Reactor {@link reactor.util.context.Context} of a
+ * subscription under the {@code ResourceMatchingStrategy.class} key.
+ */
+@Value.Immutable
+abstract class _ResourceMatchingStrategy {
+
+    @Value.Check
+    public final void check() {
+        if (getBatchSize() < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+
+        if (getConcurrency() < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+    }
+
+    /**
+     * The maximum number of files to include in a single resource match request
+     */
+    @Value.Default
+    public int getBatchSize() {
+        return 1_000;
+    }
+
+    /**
+     * The maximum number of resource match requests to make concurrently
+     */
+    @Value.Default
+    public int getConcurrency() {
+        return 4;
+    }
+
+    /**
+     * The size of the largest file that the Cloud Controller will match.  Larger files are always uploaded and are not sent for matching.  Defaults to the Cloud Controller's default
+     * {@code resource_pool.maximum_size}.
+     */
+    @Value.Default
+    public long getMaximumSize() {
+        return 512 * 1_024 * 1_024;
+    }
+
+    /**
+     * The size of the smallest file that the Cloud Controller will match.  Smaller files are always uploaded and are not sent for matching.  Defaults to the Cloud Controller's default
+     * {@code resource_pool.minimum_size}.
+     */
+    @Value.Default
+    public long getMinimumSize() {
+        return 64 * 1_024;
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.util;
+
+import org.immutables.value.Value;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The progress of an upload, as reported to an {@link UploadProgressMonitor}
+ */
+@Value.Immutable
+abstract class _UploadProgress {
+
+    /**
+     * The number of bytes of the request body written to the network so far
+     */
+    abstract long getBytesSent();
+
+    /**
+     * The length of the request body, if it is known before the upload starts
+     */
+    abstract Optional<Long> getContentLength();
+
+    /**
+     * The time since the upload started
+     */
+    abstract Duration getElapsed();
+
+    /**
+     * The estimated time until the upload completes, if the length of the request body is known
+     */
+    abstract Optional<Duration> getEstimatedTimeRemaining();
+
+    /**
+     * The form-data name of the part currently being sent
+     */
+    abstract String getPart();
+
+    /**
+     * The time since the current part started being sent
+     */
+    abstract Duration getPartElapsed();
+
+    /**
+     * The average throughput of the upload so far, in bytes per second
+     */
+    abstract double getThroughput();
+
+    /**
+     * Whether the current part has been completely sent
+     */
+    abstract boolean isPartComplete();
+
+}
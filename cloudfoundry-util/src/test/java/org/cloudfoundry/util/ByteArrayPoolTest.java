@@ -0,0 +1,125 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class ByteArrayPoolTest {
+
+    @Test
+    public void contention() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+
+            for (int i = 0; i < 64; i++) {
+                byte value = (byte) i;
+
+                results.add(executor.submit(() -> {
+                    boolean exclusive = true;
+
+                    for (int j = 0; j < 200; j++) {
+                        AtomicReference<Boolean> unchanged = new AtomicReference<>();
+
+                        ByteArrayPool.withByteArray(j % 2 == 0 ? 1_024 * 1_024 : 16 * 1_024, byteArray -> {
+                            Arrays.fill(byteArray, value);
+                            Thread.yield();
+                            unchanged.set(allMatch(byteArray, value));
+                        });
+
+                        exclusive &= unchanged.get();
+                    }
+
+                    return exclusive;
+                }));
+            }
+
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void directByteBuffer() {
+        AtomicReference<ByteBuffer> first = new AtomicReference<>();
+        ByteArrayPool.withDirectByteBuffer(10_000, byteBuffer -> {
+            byteBuffer.put((byte) 1).limit(1);
+            first.set(byteBuffer);
+        });
+
+        ByteArrayPool.withDirectByteBuffer(10_000, byteBuffer -> {
+            assertThat(byteBuffer).isSameAs(first.get());
+            assertThat(byteBuffer.isDirect()).isTrue();
+            assertThat(byteBuffer.capacity()).isEqualTo(16 * 1_024);
+            assertThat(byteBuffer.position()).isZero();
+            assertThat(byteBuffer.limit()).isEqualTo(byteBuffer.capacity());
+        });
+    }
+
+    @Test
+    public void oversized() {
+        long discardCount = ByteArrayPool.getMetrics().getDiscardCount();
+
+        ByteArrayPool.withByteArray(2 * 1_024 * 1_024, byteArray -> assertThat(byteArray).hasSize(2 * 1_024 * 1_024));
+
+        assertThat(ByteArrayPool.getMetrics().getDiscardCount()).isEqualTo(discardCount + 1);
+    }
+
+    @Test
+    public void reuse() {
+        AtomicReference<byte[]> first = new AtomicReference<>();
+        ByteArrayPool.withByteArray(32 * 1_024, first::set);
+
+        long hitCount = ByteArrayPool.getMetrics().getHitCount();
+        ByteArrayPool.withByteArray(32 * 1_024, byteArray -> assertThat(byteArray).isSameAs(first.get()));
+
+        assertThat(ByteArrayPool.getMetrics().getHitCount()).isEqualTo(hitCount + 1);
+    }
+
+    @Test
+    public void sizeClass() {
+        ByteArrayPool.withByteArray(1, byteArray -> assertThat(byteArray).hasSize(4 * 1_024));
+        ByteArrayPool.withByteArray(5_000, byteArray -> assertThat(byteArray).hasSize(8 * 1_024));
+        ByteArrayPool.withByteArray(byteArray -> assertThat(byteArray).hasSize(1_024 * 1_024));
+    }
+
+    private static boolean allMatch(byte[] byteArray, byte value) {
+        for (byte b : byteArray) {
+            if (b != value) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.util;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class FileHashCacheTest {
+
+    private final Path application;
+
+    private final Path cacheDirectory;
+
+    private final Path file;
+
+    public FileHashCacheTest() throws IOException {
+        this.application = Files.createTempDirectory("file-hash-cache-application-");
+        this.cacheDirectory = Files.createTempDirectory("file-hash-cache-");
+        this.file = this.application.resolve("test-file");
+
+        Files.write(this.file, "test-content".getBytes());
+        Files.setLastModifiedTime(this.file, FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS)));
+    }
+
+    @After
+    public void delete() throws IOException {
+        delete(this.application);
+        delete(this.cacheDirectory);
+    }
+
+    @Test
+    public void hashCached() throws IOException {
+        FileHashCache cache = new FileHashCache(this.cacheDirectory);
+
+        FileHashCache.Index index = cache.open(this.application);
+        assertThat(index.hash(this.file)).isEqualTo("60b62e43b6a5e292b8fdbd41e57de248605d2c27");
+        index.save();
+
+        String indexContent = new String(Files.readAllBytes(getIndexFile()));
+        Files.write(getIndexFile(), indexContent.replace("60b62e43b6a5e292b8fdbd41e57de248605d2c27", "0000000000000000000000000000000000000000").getBytes());
+
+        assertThat(cache.open(this.application).hash(this.file)).isEqualTo("0000000000000000000000000000000000000000");
+    }
+
+    @Test
+    public void hashChanged() throws IOException {
+        FileHashCache cache = new FileHashCache(this.cacheDirectory);
+
+        FileHashCache.Index index = cache.open(this.application);
+        index.hash(this.file);
+        index.save();
+
+        Files.write(this.file, "test-content-changed".getBytes());
+        Files.setLastModifiedTime(this.file, FileTime.from(Instant.now().minus(30, ChronoUnit.MINUTES)));
+
+        assertThat(cache.open(this.application).hash(this.file)).isEqualTo(FileUtils.hash(this.file));
+        assertThat(FileUtils.hash(this.file)).isNotEqualTo("60b62e43b6a5e292b8fdbd41e57de248605d2c27");
+    }
+
+    @Test
+    public void hashCorrupt() throws IOException {
+        FileHashCache cache = new FileHashCache(this.cacheDirectory);
+
+        FileHashCache.Index index = cache.open(this.application);
+        index.hash(this.file);
+        index.save();
+
+        Files.write(getIndexFile(), "test-corrupt-content".getBytes());
+
+        assertThat(cache.open(this.application).hash(this.file)).isEqualTo("60b62e43b6a5e292b8fdbd41e57de248605d2c27");
+    }
+
+    private static void delete(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths
+                .sorted(Comparator.reverseOrder())
+                .forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private Path getIndexFile() throws IOException {
+        try (DirectoryStream<Path> indexFiles = Files.newDirectoryStream(this.cacheDirectory, "*.idx")) {
+            return indexFiles.iterator().next();
+        }
+    }
+
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.util;
+
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.After;
+import org.junit.Test;
+import reactor.core.Exceptions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class FileUtilsTest {
+
+    private final Path directory;
+
+    private final Path file;
+
+    public FileUtilsTest() throws IOException {
+        this.directory = Files.createTempDirectory("file-utils-test-");
+        this.file = Files.createTempFile("file-utils-test-", ".bin");
+    }
+
+    @Test
+    public void compressDeterministicOrder() throws IOException {
+        Files.write(this.directory.resolve("test-c"), "test-content-c".getBytes());
+        Files.createDirectory(this.directory.resolve("test-a"));
+        Files.write(this.directory.resolve("test-a/test-b"), "test-content-a-b".getBytes());
+        Files.write(this.directory.resolve("test-b"), "test-content-b".getBytes());
+
+        Path compressed = FileUtils.compress(this.directory).block(Duration.ofSeconds(5));
+
+        try (ZipFile zipFile = new ZipFile(compressed.toFile())) {
+            assertThat(Collections.list(zipFile.getEntries()))
+                .extracting(ZipArchiveEntry::getName)
+                .containsExactly("test-a/", "test-a/test-b", "test-b", "test-c");
+        } finally {
+            Files.deleteIfExists(compressed);
+        }
+    }
+
+    @Test
+    public void compressDeterministicOrderManyEntries() throws IOException {
+        Random random = new Random(0);
+
+        for (int i = 0; i < 20; i++) {
+            Path directory = Files.createDirectory(this.directory.resolve(String.format("test-directory-%02d", i)));
+
+            for (int j = 0; j < 20; j++) {
+                byte[] content = new byte[random.nextInt(4) == 0 ? random.nextInt(256 * 1_024) : random.nextInt(1_024)];
+                random.nextBytes(content);
+
+                Files.write(directory.resolve(String.format("test-file-%02d%s", j, j % 5 == 0 ? ".jar" : "")), content);
+            }
+        }
+
+        List<String> expected;
+        try (Stream<Path> paths = Files.walk(this.directory)) {
+            expected = paths
+                .filter(path -> !path.equals(this.directory))
+                .sorted()
+                .map(path -> FileUtils.getRelativePathName(this.directory, path))
+                .collect(Collectors.toList());
+        }
+
+        Path compressed = FileUtils.compress(this.directory).block(Duration.ofSeconds(30));
+
+        try (ZipFile zipFile = new ZipFile(compressed.toFile())) {
+            assertThat(Collections.list(zipFile.getEntries()))
+                .extracting(ZipArchiveEntry::getName)
+                .containsExactlyElementsOf(expected);
+        } finally {
+            Files.deleteIfExists(compressed);
+        }
+    }
+
+    @Test
+    public void compressMatchesStream() throws IOException {
+        byte[] content = new byte[300 * 1_024];
+        new Random(0).nextBytes(content);
+
+        Files.createDirectory(this.directory.resolve("test-directory"));
+        Files.write(this.directory.resolve("test-directory/test-random"), content);
+        Files.write(this.directory.resolve("test-directory/test.jar"), content);
+        Files.write(this.directory.resolve("test-text"), "test-content".getBytes());
+
+        Path compressed = FileUtils.compress(this.directory).block(Duration.ofSeconds(5));
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        FileUtils.compressStream(this.directory, path -> true)
+            .doOnNext(chunk -> streamed.write(chunk, 0, chunk.length))
+            .blockLast(Duration.ofSeconds(5));
+
+        try (InputStream in = Files.newInputStream(compressed)) {
+            assertThat(getEntryHashes(in))
+                .containsOnlyKeys("test-directory/", "test-directory/test-random", "test-directory/test.jar", "test-text")
+                .isEqualTo(getEntryHashes(new ByteArrayInputStream(streamed.toByteArray())));
+        } finally {
+            Files.deleteIfExists(compressed);
+        }
+    }
+
+    @Test
+    public void compressStoredEntries() throws IOException {
+        Files.createDirectory(this.directory.resolve("test-directory"));
+        Files.write(this.directory.resolve("test-image.PNG"), "test-content".getBytes());
+        Files.write(this.directory.resolve("test-library.jar"), "test-content".getBytes());
+        Files.write(this.directory.resolve("test-text.txt"), "test-content".getBytes());
+
+        Path compressed = FileUtils.compress(this.directory).block(Duration.ofSeconds(5));
+
+        try (ZipFile zipFile = new ZipFile(compressed.toFile())) {
+            assertThat(zipFile.getEntry("test-directory/").getMethod()).isEqualTo(ZipEntry.STORED);
+            assertThat(zipFile.getEntry("test-image.PNG").getMethod()).isEqualTo(ZipEntry.STORED);
+            assertThat(zipFile.getEntry("test-library.jar").getMethod()).isEqualTo(ZipEntry.STORED);
+            assertThat(zipFile.getEntry("test-text.txt").getMethod()).isEqualTo(ZipEntry.DEFLATED);
+        } finally {
+            Files.deleteIfExists(compressed);
+        }
+    }
+
+    @Test
+    public void compressStream() throws IOException {
+        byte[] content = new byte[300 * 1_024];
+        new Random(0).nextBytes(content);
+
+        Files.createDirectory(this.directory.resolve("test-directory"));
+        Files.write(this.directory.resolve("test-directory/test-included"), content);
+        Files.write(this.directory.resolve("test-excluded"), "test-content".getBytes());
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        FileUtils.compressStream(this.directory, path -> !"test-excluded".equals(path))
+            .doOnNext(chunk -> compressed.write(chunk, 0, chunk.length))
+            .blockLast(Duration.ofSeconds(5));
+
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipArchiveInputStream in = new ZipArchiveInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+            ZipArchiveEntry entry;
+            while ((entry = in.getNextZipEntry()) != null) {
+                entries.put(entry.getName(), IOUtils.toByteArray(in));
+            }
+        }
+
+        assertThat(entries).containsOnlyKeys("test-directory/", "test-directory/test-included");
+        assertThat(entries.get("test-directory/test-included")).isEqualTo(content);
+    }
+
+    @Test
+    public void compressStreamZip64() throws IOException {
+        int count = 70_000;
+
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(this.file.toFile())) {
+            out.setUseZip64(Zip64Mode.AsNeeded);
+
+            for (int i = 0; i < count; i++) {
+                out.putArchiveEntry(new ZipArchiveEntry(String.format("test-entry-%d", i)));
+                out.closeArchiveEntry();
+            }
+        }
+
+        Path streamed = Files.createTempFile("file-utils-test-", ".zip");
+
+        try {
+            try (OutputStream out = Files.newOutputStream(streamed)) {
+                FileUtils.compressStream(this.file, path -> true)
+                    .doOnNext(chunk -> {
+                        try {
+                            out.write(chunk);
+                        } catch (IOException e) {
+                            throw Exceptions.propagate(e);
+                        }
+                    })
+                    .blockLast(Duration.ofMinutes(1));
+            }
+
+            try (ZipFile zipFile = new ZipFile(streamed.toFile())) {
+                assertThat(Collections.list(zipFile.getEntries())).hasSize(count);
+                assertThat(zipFile.getEntry(String.format("test-entry-%d", count - 1))).isNotNull();
+            }
+        } finally {
+            Files.deleteIfExists(streamed);
+        }
+    }
+
+    @After
+    public void delete() throws IOException {
+        Files.deleteIfExists(this.file);
+
+        try (Stream<Path> paths = Files.walk(this.directory)) {
+            paths
+                .sorted(Comparator.reverseOrder())
+                .forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void hashLarge() throws IOException {
+        byte[] content = new byte[3 * 1_024 * 1_024 + 17];
+        new Random(0).nextBytes(content);
+        Files.write(this.file, content);
+
+        assertThat(FileUtils.hash(this.file)).isEqualTo(FileUtils.hash(new ByteArrayInputStream(content)));
+    }
+
+    @Test
+    public void hashSmall() throws IOException {
+        Files.write(this.file, "test-content".getBytes());
+
+        assertThat(FileUtils.hash(this.file)).isEqualTo("60b62e43b6a5e292b8fdbd41e57de248605d2c27");
+    }
+
+    @Test
+    public void sizeLarge() throws IOException {
+        long size = (3L << 30) + 17;
+        try (RandomAccessFile file = new RandomAccessFile(this.file.toFile(), "rw")) {
+            file.setLength(size);
+        }
+
+        assertThat(FileUtils.size(this.file)).isEqualTo(size);
+    }
+
+    private static Map<String, String> getEntryHashes(InputStream compressed) throws IOException {
+        Map<String, String> entries = new HashMap<>();
+
+        try (ZipArchiveInputStream in = new ZipArchiveInputStream(compressed)) {
+            ZipArchiveEntry entry;
+            while ((entry = in.getNextZipEntry()) != null) {
+                entries.put(entry.getName(), FileUtils.hash(in));
+            }
+        }
+
+        return entries;
+    }
+
+}
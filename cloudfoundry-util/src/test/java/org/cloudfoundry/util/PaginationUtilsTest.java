@@ -16,6 +16,7 @@
 
 package org.cloudfoundry.util;
 
+import org.cloudfoundry.client.v2.ClientV2Exception;
 import org.cloudfoundry.client.v2.spaces.ListSpacesRequest;
 import org.cloudfoundry.client.v2.spaces.ListSpacesResponse;
 import org.cloudfoundry.client.v2.spaces.SpaceEntity;
@@ -38,10 +39,10 @@ import org.cloudfoundry.uaa.users.Users;
 import org.junit.Test;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
+import reactor.util.context.Context;
 
 import java.time.Duration;
 import java.util.Collections;
-import java.util.concurrent.TimeoutException;
 
 import static org.mockito.Mockito.RETURNS_SMART_NULLS;
 import static org.mockito.Mockito.mock;
@@ -68,6 +69,28 @@ public final class PaginationUtilsTest {
             .verify(Duration.ofSeconds(1));
     }
 
+    @Test
+    public void requestClientV2ResourcesConcurrencyOrdered() {
+        Spaces spaces = mock(Spaces.class, RETURNS_SMART_NULLS);
+
+        requestListSpaces(spaces, 1, 3);
+        requestListSpaces(spaces, 2, 3, Duration.ofMillis(200));
+        requestListSpaces(spaces, 3, 3);
+
+        PaginationUtils
+            .requestClientV2Resources(page -> spaces
+                .list(ListSpacesRequest.builder()
+                    .page(page)
+                    .build()), PaginationStrategy.builder()
+                .concurrency(2)
+                .build())
+            .map(resource -> resource.getEntity().getName())
+            .as(StepVerifier::create)
+            .expectNext("1", "2", "3")
+            .expectComplete()
+            .verify(Duration.ofSeconds(1));
+    }
+
     @Test
     public void requestClientV2ResourcesEmpty() {
         Spaces spaces = mock(Spaces.class, RETURNS_SMART_NULLS);
@@ -84,6 +107,74 @@ public final class PaginationUtilsTest {
             .verify(Duration.ofSeconds(1));
     }
 
+    @Test
+    public void requestClientV2ResourcesRateLimited() {
+        Spaces spaces = mock(Spaces.class, RETURNS_SMART_NULLS);
+
+        requestListSpaces(spaces, 1, 3);
+        requestListSpacesRateLimited(spaces, 2, 3);
+        requestListSpaces(spaces, 3, 3);
+
+        PaginationUtils
+            .requestClientV2Resources(page -> spaces
+                .list(ListSpacesRequest.builder()
+                    .page(page)
+                    .build()), PaginationStrategy.builder()
+                .concurrency(2)
+                .maximumRetries(1)
+                .minimumBackoff(Duration.ofMillis(10))
+                .build())
+            .map(resource -> resource.getEntity().getName())
+            .as(StepVerifier::create)
+            .expectNext("1", "2", "3")
+            .expectComplete()
+            .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void requestClientV2ResourcesRateLimitedExhausted() {
+        Spaces spaces = mock(Spaces.class, RETURNS_SMART_NULLS);
+
+        requestListSpaces(spaces, 1, 3);
+        requestListSpacesRateLimited(spaces, 2, 3);
+        requestListSpaces(spaces, 3, 3);
+
+        PaginationUtils
+            .requestClientV2Resources(page -> spaces
+                .list(ListSpacesRequest.builder()
+                    .page(page)
+                    .build()))
+            .map(resource -> resource.getEntity().getName())
+            .as(StepVerifier::create)
+            .expectNext("1")
+            .expectError(ClientV2Exception.class)
+            .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void requestClientV2ResourcesRateLimitedContext() {
+        Spaces spaces = mock(Spaces.class, RETURNS_SMART_NULLS);
+
+        requestListSpaces(spaces, 1, 3);
+        requestListSpacesRateLimited(spaces, 2, 3);
+        requestListSpaces(spaces, 3, 3);
+
+        PaginationUtils
+            .requestClientV2Resources(page -> spaces
+                .list(ListSpacesRequest.builder()
+                    .page(page)
+                    .build()))
+            .map(resource -> resource.getEntity().getName())
+            .subscriberContext(Context.of(PaginationStrategy.class, PaginationStrategy.builder()
+                .maximumRetries(1)
+                .minimumBackoff(Duration.ofMillis(10))
+                .build()))
+            .as(StepVerifier::create)
+            .expectNext("1", "2", "3")
+            .expectComplete()
+            .verify(Duration.ofSeconds(1));
+    }
+
     @Test
     public void requestClientV3Empty() {
         Packages packages = mock(Packages.class, RETURNS_SMART_NULLS);
@@ -191,6 +282,10 @@ public final class PaginationUtilsTest {
     }
 
     private static void requestListSpaces(Spaces spaces, Integer page, Integer totalPages) {
+        requestListSpaces(spaces, page, totalPages, Duration.ZERO);
+    }
+
+    private static void requestListSpaces(Spaces spaces, Integer page, Integer totalPages, Duration delay) {
         when(spaces
             .list(ListSpacesRequest.builder()
                 .page(page)
@@ -203,7 +298,8 @@ public final class PaginationUtilsTest {
                             .build())
                         .build())
                     .totalPages(totalPages)
-                    .build()));
+                    .build())
+                .delayElement(delay));
     }
 
     private static void requestListSpacesEmpty(Spaces spaces) {
@@ -218,6 +314,23 @@ public final class PaginationUtilsTest {
                     .build()));
     }
 
+    private static void requestListSpacesRateLimited(Spaces spaces, Integer page, Integer totalPages) {
+        when(spaces
+            .list(ListSpacesRequest.builder()
+                .page(page)
+                .build()))
+            .thenReturn(Mono.error(new ClientV2Exception(429, 10013, "Rate Limit Exceeded", "CF-RateLimitExceeded")))
+            .thenReturn(Mono
+                .just(ListSpacesResponse.builder()
+                    .resource(SpaceResource.builder()
+                        .entity(SpaceEntity.builder()
+                            .name(page.toString())
+                            .build())
+                        .build())
+                    .totalPages(totalPages)
+                    .build()));
+    }
+
     private static void requestListUsers(Users users, Integer startIndex, Integer itemsPerPage, Integer totalResults) {
         when(users
             .list(ListUsersRequest.builder()
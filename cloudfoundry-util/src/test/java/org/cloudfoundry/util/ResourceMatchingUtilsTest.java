@@ -0,0 +1,176 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.util;
+
+import org.cloudfoundry.client.CloudFoundryClient;
+import org.cloudfoundry.client.v2.resourcematch.ListMatchingResourcesRequest;
+import org.cloudfoundry.client.v2.resourcematch.ListMatchingResourcesResponse;
+import org.cloudfoundry.client.v2.resourcematch.ResourceMatch;
+import org.junit.After;
+import org.junit.Test;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_SMART_NULLS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public final class ResourceMatchingUtilsTest {
+
+    private final Path application;
+
+    private final Path cacheDirectory;
+
+    private final CloudFoundryClient cloudFoundryClient = mock(CloudFoundryClient.class, RETURNS_SMART_NULLS);
+
+    private final ResourceMatch resourceMatch = mock(ResourceMatch.class, RETURNS_SMART_NULLS);
+
+    public ResourceMatchingUtilsTest() throws IOException {
+        this.application = Files.createTempDirectory("resource-matching-utils-");
+        this.cacheDirectory = Files.createTempDirectory("resource-matching-utils-cache-");
+
+        for (int i = 0; i < 5; i++) {
+            Path file = this.application.resolve(String.format("test-large-file-%d", i));
+            Files.write(file, new byte[64 * 1_024 + i]);
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS)));
+        }
+
+        Files.write(this.application.resolve("test-small-file"), "test-content".getBytes());
+
+        when(this.cloudFoundryClient.resourceMatch()).thenReturn(this.resourceMatch);
+    }
+
+    @After
+    public void delete() throws IOException {
+        delete(this.application);
+        delete(this.cacheDirectory);
+    }
+
+    @Test
+    public void getMatchedResourcesBatched() {
+        when(this.resourceMatch.list(any(ListMatchingResourcesRequest.class)))
+            .thenAnswer(invocation -> Mono.just(ListMatchingResourcesResponse.builder()
+                .resources(invocation.<ListMatchingResourcesRequest>getArgument(0).getResources())
+                .build()));
+
+        ResourceMatchingUtils.getMatchedResources(this.cloudFoundryClient, this.application)
+            .subscriberContext(Context.of(ResourceMatchingStrategy.class, ResourceMatchingStrategy.builder()
+                .batchSize(2)
+                .build()))
+            .as(StepVerifier::create)
+            .consumeNextWith(matched -> assertThat(matched)
+                .hasSize(5)
+                .allMatch(artifactMetadata -> artifactMetadata.getPath().startsWith("test-large-file-")))
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+
+        verify(this.resourceMatch, times(3)).list(any(ListMatchingResourcesRequest.class));
+    }
+
+    @Test
+    public void getMatchedResourcesHashCache() throws IOException {
+        when(this.resourceMatch.list(any(ListMatchingResourcesRequest.class)))
+            .thenReturn(Mono.just(ListMatchingResourcesResponse.builder()
+                .build()));
+
+        ResourceMatchingUtils.getMatchedResources(this.cloudFoundryClient, this.application)
+            .subscriberContext(Context.of(FileHashCache.class, new FileHashCache(this.cacheDirectory)))
+            .as(StepVerifier::create)
+            .expectNext(Collections.emptyList())
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(getIndexFiles()).hasSize(1);
+        assertThat(new String(Files.readAllBytes(getIndexFiles().get(0)), StandardCharsets.UTF_8))
+            .contains("test-large-file-0", "test-large-file-4");
+    }
+
+    @Test
+    public void getMatchedResourcesHashCacheError() throws IOException {
+        Files.createSymbolicLink(this.application.resolve("test-dangling-link"), this.application.resolve("test-missing-file"));
+
+        ResourceMatchingUtils.getMatchedResources(this.cloudFoundryClient, this.application)
+            .subscriberContext(Context.of(FileHashCache.class, new FileHashCache(this.cacheDirectory)))
+            .as(StepVerifier::create)
+            .consumeErrorWith(t -> assertThat(Exceptions.unwrap(t)).isInstanceOf(NoSuchFileException.class))
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(getIndexFiles()).isEmpty();
+    }
+
+    @Test
+    public void getMatchedResourcesMetrics() {
+        when(this.resourceMatch.list(any(ListMatchingResourcesRequest.class)))
+            .thenAnswer(invocation -> Mono.just(ListMatchingResourcesResponse.builder()
+                .resources(invocation.<ListMatchingResourcesRequest>getArgument(0).getResources())
+                .build()));
+
+        ResourceMatchingMetrics metrics = new ResourceMatchingMetrics();
+
+        ResourceMatchingUtils.getMatchedResources(this.cloudFoundryClient, this.application)
+            .subscriberContext(Context.of(ResourceMatchingMetrics.class, metrics, ResourceMatchingStrategy.class, ResourceMatchingStrategy.builder()
+                .batchSize(2)
+                .build()))
+            .as(StepVerifier::create)
+            .expectNextCount(1)
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(metrics.getMatchedBytes()).isEqualTo(5 * 64 * 1_024 + 10);
+        assertThat(metrics.getMatchedCount()).isEqualTo(5);
+        assertThat(metrics.getRequestCount()).isEqualTo(3);
+        assertThat(metrics.getSkippedCount()).isEqualTo(1);
+    }
+
+    private static void delete(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths
+                .sorted(Comparator.reverseOrder())
+                .forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private List<Path> getIndexFiles() throws IOException {
+        try (Stream<Path> paths = Files.list(this.cacheDirectory)) {
+            return paths
+                .filter(path -> path.toString().endsWith(".idx"))
+                .collect(Collectors.toList());
+        }
+    }
+
+}
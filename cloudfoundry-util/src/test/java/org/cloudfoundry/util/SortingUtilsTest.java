@@ -0,0 +1,143 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.util;
+
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class SortingUtilsTest {
+
+    @Test
+    public void reorderBackpressure() {
+        AtomicLong requested = new AtomicLong();
+
+        StepVerifier.withVirtualTime(() -> Flux.range(0, 100)
+            .map(Long::valueOf)
+            .doOnRequest(requested::addAndGet)
+            .transform(SortingUtils.reorder(Comparator.naturalOrder(), Long::longValue, Duration.ofHours(1), 4)), 0)
+            .expectSubscription()
+            .then(() -> assertThat(requested).hasValue(4))
+            .thenRequest(1)
+            .expectNext(0L)
+            .then(() -> assertThat(requested).hasValue(5))
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void reorderCapacity() {
+        StepVerifier.withVirtualTime(() -> Flux.just(5L, 4L, 3L, 2L, 1L)
+            .concatWith(Flux.never())
+            .transform(SortingUtils.reorder(Comparator.naturalOrder(), Long::longValue, Duration.ofHours(1), 2)))
+            .expectNext(4L, 3L, 2L, 1L)
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void reorderIdle() {
+        StepVerifier.withVirtualTime(() -> Flux.just(2L, 1L)
+            .concatWith(Flux.never())
+            .transform(SortingUtils.reorder(Comparator.naturalOrder(), Long::longValue, Duration.ofSeconds(1), 10)))
+            .expectSubscription()
+            .expectNoEvent(Duration.ofMillis(999))
+            .thenAwait(Duration.ofMillis(1))
+            .expectNext(1L, 2L)
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void reorderIdleArrival() {
+        StepVerifier.withVirtualTime(() -> Flux.just(2L, 1L)
+            .concatWith(Mono.delay(Duration.ofMillis(500)).map(n -> 0L))
+            .concatWith(Flux.never())
+            .transform(SortingUtils.reorder(Comparator.naturalOrder(), Long::longValue, Duration.ofSeconds(1), 10)))
+            .expectSubscription()
+            .expectNoEvent(Duration.ofMillis(1_499))
+            .thenAwait(Duration.ofMillis(1))
+            .expectNext(0L, 1L, 2L)
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void reorderVolume() {
+        Random random = new Random(0);
+
+        List<Long> expected = LongStream.range(0, 100_000).boxed().collect(Collectors.toList());
+        List<Long> scrambled = new ArrayList<>(expected.size());
+        for (int i = 0; i < expected.size(); i += 64) {
+            List<Long> block = new ArrayList<>(expected.subList(i, Math.min(i + 64, expected.size())));
+            Collections.shuffle(block, random);
+            scrambled.addAll(block);
+        }
+
+        StepVerifier.withVirtualTime(() -> Flux.fromIterable(scrambled)
+            .transform(SortingUtils.reorder(Comparator.naturalOrder(), Long::longValue, Duration.ofNanos(64), 1_024)))
+            .expectNextSequence(expected)
+            .expectComplete()
+            .verify(Duration.ofSeconds(30));
+    }
+
+    @Test
+    public void reorderWatermark() {
+        StepVerifier.withVirtualTime(() -> Flux.just(3L, 1L, 2L, 6L, 4L, 5L)
+            .concatWith(Flux.never())
+            .transform(SortingUtils.reorder(Comparator.naturalOrder(), Long::longValue, Duration.ofNanos(2), 10)))
+            .expectNext(1L, 2L, 3L, 4L)
+            .thenAwait(Duration.ofNanos(10))
+            .expectNext(5L, 6L)
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void timespanContinuous() {
+        StepVerifier.withVirtualTime(() -> Flux.interval(Duration.ofMillis(100))
+            .map(n -> n ^ 1)
+            .transform(SortingUtils.timespan(Comparator.<Long>naturalOrder(), Duration.ofSeconds(1))))
+            .expectSubscription()
+            .expectNoEvent(Duration.ofMillis(1_199))
+            .thenAwait(Duration.ofMillis(1))
+            .expectNext(0L, 1L)
+            .expectNoEvent(Duration.ofMillis(199))
+            .thenAwait(Duration.ofMillis(1))
+            .expectNext(2L, 3L)
+            .thenAwait(Duration.ofSeconds(10))
+            .expectNextCount(100)
+            .expectNoEvent(Duration.ofMillis(199))
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2013-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cloudfoundry.util;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.junit.After;
+import org.junit.Test;
+import reactor.core.Exceptions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class FileUtilsLargeTest {
+
+    private static final long SIZE = (4L << 30) + 17;
+
+    private final Path directory;
+
+    public FileUtilsLargeTest() throws IOException {
+        this.directory = Files.createTempDirectory("file-utils-large-test-");
+
+        try (RandomAccessFile file = new RandomAccessFile(this.directory.resolve("test-large").toFile(), "rw")) {
+            file.setLength(SIZE);
+        }
+    }
+
+    @Test
+    public void compress() throws IOException {
+        Path compressed = FileUtils.compress(this.directory).block(Duration.ofMinutes(5));
+
+        try (ZipFile zipFile = new ZipFile(compressed.toFile())) {
+            assertThat(zipFile.getEntry("test-large").getSize()).isEqualTo(SIZE);
+        } finally {
+            Files.deleteIfExists(compressed);
+        }
+    }
+
+    @Test
+    public void compressStream() throws IOException {
+        Path streamed = Files.createTempFile("file-utils-large-test-", ".zip");
+
+        try {
+            try (OutputStream out = Files.newOutputStream(streamed)) {
+                FileUtils.compressStream(this.directory, path -> true)
+                    .doOnNext(chunk -> {
+                        try {
+                            out.write(chunk);
+                        } catch (IOException e) {
+                            throw Exceptions.propagate(e);
+                        }
+                    })
+                    .blockLast(Duration.ofMinutes(5));
+            }
+
+            try (ZipFile zipFile = new ZipFile(streamed.toFile())) {
+                assertThat(zipFile.getEntry("test-large").getSize()).isEqualTo(SIZE);
+            }
+
+            try (InputStream in = Files.newInputStream(streamed); ZipArchiveInputStream zip = new ZipArchiveInputStream(in)) {
+                ZipArchiveEntry entry = zip.getNextZipEntry();
+                assertThat(entry.getName()).isEqualTo("test-large");
+
+                long size = 0;
+                long skipped;
+                while ((skipped = zip.skip(Long.MAX_VALUE)) > 0) {
+                    size += skipped;
+                }
+
+                assertThat(size).isEqualTo(SIZE);
+            }
+        } finally {
+            Files.deleteIfExists(streamed);
+        }
+    }
+
+    @After
+    public void delete() throws IOException {
+        try (Stream<Path> paths = Files.walk(this.directory)) {
+            paths
+                .sorted(Comparator.reverseOrder())
+                .forEach(path -> path.toFile().delete());
+        }
+    }
+
+}